@@ -0,0 +1,262 @@
+/* AllocationBudget.java - Checks allocations per picker update against budgets
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+
+import javafx.fxml.FXMLLoader;
+
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import javafx.scene.control.Spinner;
+
+import javafx.scene.image.WritableImage;
+
+import javafx.scene.layout.HBox;
+
+import javafx.scene.paint.Color;
+
+import javafx.stage.Stage;
+
+/* Usage: AllocationBudget [-updates n] [-warmup n] [-report]
+ *
+ * Drives the pickers and Controller.changed through synthetic property
+ * updates and measures the bytes the FX thread allocates for each update,
+ * which includes the control's own rendering, and for the snapshot of the
+ * scene that follows it. The p99 of either above its budget fails the
+ * scenario and sets the exit status to 1, unless -report only prints the
+ * table. The budgets below are roughly twice what was measured when they
+ * were set, lower them as the drag path allocates less. Unless
+ * glass.platform is given, the Monocle headless platform is used, which
+ * then has to be on the class path.
+ */
+public class AllocationBudget extends Application {
+
+    private static int updates = 2000;
+    private static int warmup = 1;
+    private static boolean report;
+    private static int status;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-updates"))
+                updates = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-warmup"))
+                warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-report"))
+                report = true;
+        }
+
+        if (System.getProperty("glass.platform") == null) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        Application.launch(AllocationBudget.class);
+        System.exit(status);
+    }
+
+    @Override
+    public void start(Stage stage) throws Exception {
+
+        SBPickerControl sb = new SBPickerControl();
+        HuePickerControl hue = new HuePickerControl();
+        OpacityPickerControl opacity = new OpacityPickerControl();
+        stage.setScene(new Scene(new HBox(sb, hue, opacity)));
+        stage.show();
+        Scene pickers = stage.getScene();
+
+        FXMLLoader loader = new FXMLLoader(
+            Colorful.class.getResource("MainView.fxml")
+        );
+        Parent root = loader.load();
+        Stage main = new Stage();
+        main.setScene(new Scene(root));
+        main.show();
+        Scene controller = main.getScene();
+        Spinner<Double> saturation = AllocationBudget.<Double>lookup(
+            loader, "saturationSpinner"
+        );
+        Spinner<Integer> red = AllocationBudget.<Integer>lookup(
+            loader, "redSpinner"
+        );
+
+        /* name, bytes per update, bytes per snapshot */
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario(
+            "sb saturation", pickers, 4096, 4096,
+            i -> sb.saturationProperty().setValue(i % 197 / 197.0)
+        ));
+        scenarios.add(new Scenario(
+            "sb brightness", pickers, 4096, 4096,
+            i -> sb.brightnessProperty().setValue(i % 197 / 197.0)
+        ));
+        scenarios.add(new Scenario(
+            "sb hue", pickers, 4096, 4096,
+            i -> sb.hueProperty().setValue(i % 3600 / 10.0)
+        ));
+        scenarios.add(new Scenario(
+            "sb match", pickers, 4096, 4096,
+            i -> {
+                if (i == 0) {
+                    sb.matchColorProperty().setValue(Color.hsb(0, 0.5, 0.5));
+                }
+                sb.saturationProperty().setValue(i % 197 / 197.0);
+            }
+        ));
+        scenarios.add(new Scenario(
+            "hue", pickers, 2048, 4096,
+            i -> hue.hueProperty().setValue(i % 3600 / 10.0)
+        ));
+        scenarios.add(new Scenario(
+            "opacity", pickers, 2048, 4096,
+            i -> opacity.opacityValueProperty().setValue(i % 197 / 197.0)
+        ));
+        scenarios.add(new Scenario(
+            "opacity hue", pickers, 2048, 4096,
+            i -> opacity.hueProperty().setValue(i % 3600 / 10.0)
+        ));
+        /* the main view scenarios were measured at about 3.5 KB per update
+         * and a few hundred bytes per snapshot, but only with the window
+         * hidden, so none of its text was laid out or rendered. Their
+         * budgets leave room for that until they are measured with the
+         * window shown */
+        scenarios.add(new Scenario(
+            "controller hsb", controller, 32768, 65536,
+            i -> saturation.getValueFactory().setValue(i % 100 / 100.0)
+        ));
+        scenarios.add(new Scenario(
+            "controller rgb", controller, 32768, 65536,
+            i -> red.getValueFactory().setValue(i % 256)
+        ));
+
+        System.out.printf(
+            "%d updates, %d warmup pass(es), %s backend, bytes p50/p99/max%n",
+            updates, warmup, RenderBackend.get()
+        );
+        System.out.printf(
+            "%-16s %28s %28s  %s%n",
+            "scenario", "per update", "per snapshot", "budgets"
+        );
+        for (Scenario scenario : scenarios)
+            this.run(scenario);
+
+        main.close();
+        Platform.exit();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Spinner<T> lookup(FXMLLoader loader, String id) {
+        return (Spinner<T>)loader.getNamespace().get(id);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+
+        int index = (int)Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private void run(Scenario scenario) {
+
+        long thread = Thread.currentThread().getId();
+        Scene scene = scenario.scene;
+        WritableImage frame = new WritableImage(
+            (int)scene.getWidth(), (int)scene.getHeight()
+        );
+        long[] update = new long[updates];
+        long[] snapshot = new long[updates];
+
+        for (int pass = 0; pass <= warmup; pass++) {
+            for (int i = 0; i < updates; i++) {
+                long start = this.threads.getThreadAllocatedBytes(thread);
+                scenario.update.accept(i);
+                long updated = this.threads.getThreadAllocatedBytes(thread);
+                scene.snapshot(frame);
+                long end = this.threads.getThreadAllocatedBytes(thread);
+                update[i] = updated - start;
+                snapshot[i] = end - updated;
+            }
+        }
+        Arrays.sort(update);
+        Arrays.sort(snapshot);
+
+        long p99Update = AllocationBudget.percentile(update, 99);
+        long p99Snapshot = AllocationBudget.percentile(snapshot, 99);
+        boolean failed = p99Update > scenario.updateBudget ||
+                         p99Snapshot > scenario.snapshotBudget;
+        System.out.printf(
+            "%-16s %8d %9d %9d  %8d %9d %9d  %d/%d%s%n",
+            scenario.name,
+            AllocationBudget.percentile(update, 50), p99Update,
+            update[update.length - 1],
+            AllocationBudget.percentile(snapshot, 50), p99Snapshot,
+            snapshot[snapshot.length - 1],
+            scenario.updateBudget, scenario.snapshotBudget,
+            failed ? "  OVER BUDGET" : ""
+        );
+        if (failed && !report)
+            status = 1;
+    }
+
+    private static final class Scenario {
+
+        private final String name;
+        private final Scene scene;
+        private final long updateBudget;
+        private final long snapshotBudget;
+        private final IntConsumer update;
+
+        Scenario(String name, Scene scene, long updateBudget,
+                 long snapshotBudget, IntConsumer update) {
+            this.name = name;
+            this.scene = scene;
+            this.updateBudget = updateBudget;
+            this.snapshotBudget = snapshotBudget;
+            this.update = update;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/* ColorServiceLoadTest.java - Measures the fan-out latency of the color service
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.IOException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/* Usage: ColorServiceLoadTest [port] [subscribers] [messages] [interval ms]
+ *
+ * Without a port (or with port 0) an embedded service is started that
+ * echoes every SET back to its subscribers, which measures the service
+ * alone. Against a running Colorful instance the round trip includes the
+ * hand-over to the FX thread.
+ */
+public class ColorServiceLoadTest {
+
+    public static void main(String[] args) throws Exception {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int subscribers = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long interval = args.length > 3 ? Long.parseLong(args[3]) : 2;
+
+        ColorService service = null;
+        if (port == 0) {
+            ColorService[] embedded = new ColorService[1];
+            embedded[0] = new ColorService(
+                0, Runnable::run, (int argb) -> embedded[0].publish(argb)
+            );
+            embedded[0].start();
+            service = embedded[0];
+            port = service.getPort();
+        }
+
+        InetSocketAddress address = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), port
+        );
+
+        /* sequence numbers are encoded in the rgb bits of the color */
+        long[] sent = new long[messages + 1];
+        long[] latencies = new long[subscribers * messages];
+        int[] received = new int[1];
+
+        Selector selector = Selector.open();
+        for (int i = 0; i < subscribers; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.register(
+                selector, SelectionKey.OP_READ, ByteBuffer.allocate(256)
+            );
+        }
+
+        Thread reader = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    selector.select(100);
+                } catch (IOException e) {
+                    return;
+                }
+                Iterator<SelectionKey> keys =
+                    selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ByteBuffer in = (ByteBuffer)key.attachment();
+                    try {
+                        if (((SocketChannel)key.channel()).read(in) < 0) {
+                            key.cancel();
+                            continue;
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        continue;
+                    }
+                    long now = System.nanoTime();
+                    in.flip();
+                    while (in.remaining() >= 10) {
+                        int sequence = 0;
+                        in.get();
+                        for (int i = 0; i < 6; i++)
+                            sequence = sequence << 4 |
+                                Character.digit((char)in.get(), 16);
+                        in.position(in.position() + 3);
+                        if (sequence > 0 && sequence <= messages &&
+                            sent[sequence] != 0)
+                            latencies[received[0]++] = now - sent[sequence];
+                    }
+                    in.compact();
+                }
+            }
+        }, "Subscribers");
+        reader.setDaemon(true);
+        reader.start();
+
+        /* let the initial color reach everyone before measuring */
+        Thread.sleep(500);
+
+        SocketChannel publisher = SocketChannel.open(address);
+        publisher.socket().setTcpNoDelay(true);
+        long start = System.nanoTime();
+        for (int sequence = 1; sequence <= messages; sequence++) {
+            String command = String.format("SET #%06XFF\n", sequence);
+            sent[sequence] = System.nanoTime();
+            publisher.write(ByteBuffer.wrap(
+                command.getBytes(StandardCharsets.US_ASCII)
+            ));
+            if (interval > 0)
+                Thread.sleep(interval);
+        }
+        long elapsed = System.nanoTime() - start;
+        Thread.sleep(1000);
+        reader.interrupt();
+        reader.join();
+        publisher.close();
+        selector.close();
+        if (service != null)
+            service.stop();
+
+        long[] sorted = Arrays.copyOf(latencies, received[0]);
+        Arrays.sort(sorted);
+        long expected = (long)subscribers * messages;
+        System.out.printf(
+            "%d subscribers, %d messages in %.1f ms%n",
+            subscribers, messages, elapsed / 1e6
+        );
+        System.out.printf(
+            "delivered %d of %d (%.1f%% coalesced)%n",
+            sorted.length, expected,
+            100.0 * (expected - sorted.length) / expected
+        );
+        if (sorted.length == 0)
+            return;
+        System.out.printf(
+            "latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+            percentile(sorted, 0.50) / 1e6,
+            percentile(sorted, 0.90) / 1e6,
+            percentile(sorted, 0.99) / 1e6,
+            sorted[sorted.length - 1] / 1e6
+        );
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int)Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,393 @@
+/* DragReplay.java - Replays recorded drags and reports per-event latency
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.animation.AnimationTimer;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+
+import javafx.event.Event;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import javafx.scene.image.WritableImage;
+
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.PickResult;
+
+import javafx.scene.layout.HBox;
+
+import javafx.stage.Stage;
+
+/* Usage: DragReplay [-bare] [-fast] [-warmup n] [-p99 ms] [recording]
+ *
+ * Replays a recording made with -Dcolorful.record=<file> against the
+ * pickers of the full Colorful scene, or with -bare against the three
+ * pickers alone. Without a recording a sweep over each picker is replayed.
+ * Events keep their recorded spacing unless -fast fires one per pulse.
+ * Unless glass.platform is given, the Monocle headless platform is used,
+ * which then has to be on the class path.
+ *
+ * Each event is fired at the node under it and followed by a snapshot of
+ * the scene, which runs CSS, layout and rendering just like a pulse. The
+ * time from firing to the finished snapshot is the latency of the event,
+ * FX thread allocations and collector time are taken over the same span.
+ * The warmup passes are not measured. With -p99 the exit status is 1 if
+ * the p99 latency exceeds the given milliseconds.
+ */
+public class DragReplay extends Application {
+
+    private static DragRecording recording;
+    private static boolean bare;
+    private static boolean fast;
+    private static int warmup = 1;
+    private static double limit = -1;
+    private static int status;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors =
+        ManagementFactory.getGarbageCollectorMXBeans();
+
+    private Scene scene;
+    private WritableImage frame;
+    private Node[] controls;
+    private Node target;
+    private boolean still;
+
+    private long[] latencies;
+    private long[] allocations;
+    private int samples;
+    private long collectionTime;
+    private long longestCollection;
+
+    public static void main(String[] args) throws IOException {
+
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-bare"))
+                bare = true;
+            else if (args[i].equals("-fast"))
+                fast = true;
+            else if (args[i].equals("-warmup"))
+                warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-p99"))
+                limit = Double.parseDouble(args[++i]);
+            else
+                file = args[i];
+        }
+        if (file != null)
+            recording = DragRecording.read(new File(file));
+
+        if (System.getProperty("glass.platform") == null) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        Application.launch(DragReplay.class);
+        System.exit(status);
+    }
+
+    @Override
+    public void start(Stage stage) throws Exception {
+
+        if (bare) {
+            stage.setScene(new Scene(new HBox(
+                new SBPickerControl(),
+                new HuePickerControl(),
+                new OpacityPickerControl()
+            )));
+            stage.show();
+        } else {
+            new Colorful().start(stage);
+        }
+
+        this.scene = stage.getScene();
+        this.frame = new WritableImage(
+            (int)this.scene.getWidth(), (int)this.scene.getHeight()
+        );
+        this.controls = new Node[DragRecording.getControlCount()];
+        DragReplay.find(this.scene.getRoot(), this.controls);
+        if (recording == null)
+            recording = DragReplay.sweep(this.controls);
+        if (recording.size() == 0) {
+            System.err.println("Nothing to replay");
+            status = 2;
+            Platform.exit();
+            return;
+        }
+
+        this.latencies = new long[recording.size()];
+        this.allocations = new long[recording.size()];
+
+        new AnimationTimer() {
+
+            private int pass;
+            private int index;
+            private long start = -1;
+
+            @Override
+            public void handle(long now) {
+
+                DragReplay replay = DragReplay.this;
+                if (this.start < 0)
+                    this.start = now;
+
+                do {
+                    long due = recording.getTime(this.index) * 1000;
+                    if (!fast && this.start + due > now)
+                        return;
+                    replay.fire(this.index, this.pass >= warmup);
+                    this.index++;
+                } while (!fast && this.index < recording.size());
+
+                if (this.index < recording.size())
+                    return;
+                this.index = 0;
+                this.start = -1;
+                if (++this.pass > warmup) {
+                    this.stop();
+                    replay.report();
+                    Platform.exit();
+                }
+            }
+        }.start();
+    }
+
+    private static void find(Node node, Node[] controls) {
+
+        for (int i = 0; i < controls.length; i++) {
+            if (controls[i] == null &&
+                    DragRecording.getControlClass(i).isInstance(node))
+                controls[i] = node;
+        }
+        if (node instanceof Parent) {
+            for (Node child : ((Parent)node).getChildrenUnmodifiable())
+                DragReplay.find(child, controls);
+        }
+    }
+
+    private static Node pick(Node node, double x, double y) {
+
+        if (node instanceof Parent) {
+            List<Node> children = ((Parent)node).getChildrenUnmodifiable();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node child = children.get(i);
+                if (!child.isVisible() || child.isMouseTransparent())
+                    continue;
+                if (child.contains(child.sceneToLocal(x, y)))
+                    return DragReplay.pick(child, x, y);
+            }
+        }
+        return node;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+
+        int index = (int)Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /* a press, 240 drags 8 ms apart and a release on every picker */
+    private static DragRecording sweep(Node[] controls) {
+
+        DragRecording sweep = new DragRecording();
+        long time = 0;
+        for (int control = 0; control < controls.length; control++) {
+            if (controls[control] == null)
+                continue;
+            Bounds bounds = controls[control].getLayoutBounds();
+            double w = bounds.getWidth() - 3;
+            double h = bounds.getHeight() - 3;
+            boolean plane = control == 0;
+
+            for (int i = 0; i <= 240; i++) {
+                double t = i / 240.0;
+                double x = 1 + (plane ? w * t : w / 2);
+                double y = 1 + h * (plane ? 1 - t : t);
+                int type = i == 0 ?
+                    DragRecording.PRESSED : DragRecording.DRAGGED;
+                sweep.add(control, type, MouseButton.PRIMARY, time, x, y);
+                time += 8000;
+                if (i == 240) {
+                    sweep.add(
+                        control, DragRecording.RELEASED, MouseButton.PRIMARY,
+                        time, x, y
+                    );
+                    time += 100000;
+                }
+            }
+        }
+        return sweep;
+    }
+
+    /* events on controls missing from the scene are skipped and leave
+     * no sample */
+    private void fire(int index, boolean measure) {
+
+        Node control = this.controls[recording.getControl(index)];
+        if (control == null)
+            return;
+
+        int type = recording.getType(index);
+        Point2D p = control.localToScene(
+            recording.getX(index), recording.getY(index)
+        );
+        if (type == DragRecording.PRESSED || this.target == null) {
+            this.target = DragReplay.pick(control, p.getX(), p.getY());
+            this.still = true;
+        } else if (type == DragRecording.DRAGGED) {
+            this.still = false;
+        }
+        boolean down = type == DragRecording.PRESSED ||
+                       type == DragRecording.DRAGGED;
+        MouseButton button = recording.getButton(index);
+
+        MouseEvent event = new MouseEvent(
+            DragRecording.getEventType(type), p.getX(), p.getY(),
+            p.getX(), p.getY(), button,
+            type == DragRecording.DRAGGED ? 0 : 1,
+            false, false, false, false,
+            down && button == MouseButton.PRIMARY,
+            down && button == MouseButton.MIDDLE,
+            down && button == MouseButton.SECONDARY,
+            false, false, this.still,
+            new PickResult(this.target, p.getX(), p.getY())
+        );
+
+        long thread = Thread.currentThread().getId();
+        long collectionTime = this.getCollectionTime();
+        long allocated = this.threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+
+        Event.fireEvent(this.target, event);
+        this.scene.snapshot(this.frame);
+
+        long latency = System.nanoTime() - start;
+        allocated = this.threads.getThreadAllocatedBytes(thread) - allocated;
+        collectionTime = this.getCollectionTime() - collectionTime;
+        if (!measure)
+            return;
+
+        this.latencies[this.samples] = latency;
+        this.allocations[this.samples] = allocated;
+        this.samples++;
+        this.collectionTime += collectionTime;
+        this.longestCollection = Math.max(
+            this.longestCollection, collectionTime
+        );
+    }
+
+    private long getCollectionCount() {
+
+        long count = 0;
+        for (GarbageCollectorMXBean collector : this.collectors)
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+
+    private long getCollectionTime() {
+
+        long time = 0;
+        for (GarbageCollectorMXBean collector : this.collectors)
+            time += Math.max(0, collector.getCollectionTime());
+        return time;
+    }
+
+    private void report() {
+
+        if (this.samples == 0) {
+            System.err.println("No event hit a picker of the scene");
+            status = 2;
+            return;
+        }
+        long[] latencies = Arrays.copyOf(this.latencies, this.samples);
+        long[] allocations = Arrays.copyOf(this.allocations, this.samples);
+        Arrays.sort(latencies);
+        Arrays.sort(allocations);
+        long total = 0;
+        for (long allocation : allocations)
+            total += allocation;
+
+        double p99 = DragReplay.percentile(latencies, 99) / 1e6;
+        System.out.printf(
+            "%d events, %d warmup pass(es), %s backend%n",
+            latencies.length, warmup, RenderBackend.get()
+        );
+        System.out.printf(
+            "latency ms      p50 %7.3f  p90 %7.3f  p99 %7.3f  " +
+            "p99.9 %7.3f  max %7.3f%n",
+            DragReplay.percentile(latencies, 50) / 1e6,
+            DragReplay.percentile(latencies, 90) / 1e6,
+            p99,
+            DragReplay.percentile(latencies, 99.9) / 1e6,
+            latencies[latencies.length - 1] / 1e6
+        );
+        System.out.printf(
+            "alloc KiB/event p50 %7.1f  p99 %7.1f  max %7.1f  " +
+            "total %.1f MiB%n",
+            DragReplay.percentile(allocations, 50) / 1024,
+            DragReplay.percentile(allocations, 99) / 1024,
+            allocations[allocations.length - 1] / 1024.0,
+            total / 1024.0 / 1024.0
+        );
+        System.out.printf(
+            "gc              %d collections in the process, " +
+            "%d ms during events, longest %d ms%n",
+            this.getCollectionCount(), this.collectionTime,
+            this.longestCollection
+        );
+
+        if (limit >= 0 && p99 > limit) {
+            System.out.printf("p99 %.3f ms exceeds %.3f ms%n", p99, limit);
+            status = 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/* ProximityOverlayCheck.java - Checks the overlay's cached Lab planes
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+
+import javafx.scene.paint.Color;
+
+import javafx.stage.Stage;
+
+/* Usage: ProximityOverlayCheck [size]
+ *
+ * Renders a view A of the match overlay, then a view B, then A again
+ * with a wider threshold, so the last render reuses the cached Lab plane
+ * of A and converts pixels the first render skipped. The result has to
+ * equal a render of A with the wider threshold by an overlay without a
+ * cache. Views are checked unzoomed and zoomed, with a hue change and
+ * with a pan between them, for every metric. Any difference sets the exit
+ * status to 1. Unless glass.platform is given, the Monocle headless
+ * platform is used, which then has to be on the class path.
+ */
+public class ProximityOverlayCheck extends Application {
+
+    private static int size = 198;
+    private static int status;
+
+    public static void main(String[] args) {
+
+        if (args.length > 0)
+            size = Integer.parseInt(args[0]);
+        if (System.getProperty("glass.platform") == null) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        Application.launch(ProximityOverlayCheck.class);
+        System.exit(status);
+    }
+
+    @Override
+    public void start(Stage stage) {
+
+        double step = 1.0 / (size - 1);
+        double[] full = { 0, step, 1, step };
+        double[] zoomed = { 0.25, step / 4, 0.75, step / 4 };
+        double[] panned = { 0.5, step / 4, 0.5, step / 4 };
+        Color color = Color.hsb(30, 0.6, 0.7);
+
+        for (DeltaE metric : DeltaE.values()) {
+            this.check("hue " + metric, metric, color, 30, full, 200, full);
+            this.check(
+                "zoomed hue " + metric, metric, color, 30, zoomed, 200, zoomed
+            );
+            this.check(
+                "zoomed pan " + metric, metric, color, 30, zoomed, 30, panned
+            );
+        }
+        Platform.exit();
+    }
+
+    private void check(
+            String name, DeltaE metric, Color color,
+            double hueA, double[] a, double hueB, double[] b) {
+
+        ProximityOverlay cached = new ProximityOverlay(size, size);
+        render(cached, hueA, a, color, metric, 1.0);
+        render(cached, hueB, b, color, metric, 1.0);
+        render(cached, hueA, a, color, metric, 10.0);
+
+        ProximityOverlay fresh = new ProximityOverlay(size, size);
+        render(fresh, hueA, a, color, metric, 10.0);
+
+        int[] expected = fresh.getBuffer().getPixels();
+        int[] actual = cached.getBuffer().getPixels();
+        int differences = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i])
+                differences++;
+        }
+        System.out.printf(
+            "%-24s %6d pixel(s) differ%s%n",
+            name, differences, differences > 0 ? "  FAILED" : ""
+        );
+        if (differences > 0)
+            status = 1;
+    }
+
+    private static void render(
+            ProximityOverlay overlay, double hue, double[] view, Color color,
+            DeltaE metric, double threshold) {
+
+        overlay.render(
+            hue, color, metric, threshold, view[0], view[1], view[2], view[3]
+        );
+    }
+}
@@ -0,0 +1,104 @@
+/* SBCompositorBenchmark.java - Compares the SB compositor with Color.hsb
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.paint.Color;
+
+/* Usage: SBCompositorBenchmark [size] [frames]
+ *
+ * Renders the SB plane for a sweep of hues once through the per-pixel
+ * Color.hsb path the picker used before and once through SBCompositor,
+ * and reports the time per frame and the largest channel difference.
+ */
+public class SBCompositorBenchmark {
+
+    public static void main(String[] args) {
+
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 198;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        int[] expected = new int[size * size];
+        int[] actual = new int[size * size];
+        SBCompositor compositor = new SBCompositor(size, size);
+
+        /* warm up both paths before measuring */
+        for (int i = 0; i < frames / 4; i++) {
+            hsb(i % 360, expected, size, size);
+            compositor.compose(i % 360, actual);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            hsb(i % 360, expected, size, size);
+        double hsb = (System.nanoTime() - start) / 1e6 / frames;
+
+        start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            compositor.compose(i % 360, actual);
+        double composed = (System.nanoTime() - start) / 1e6 / frames;
+
+        int error = 0;
+        for (int hue = 0; hue < 360; hue++) {
+            hsb(hue, expected, size, size);
+            compositor.compose(hue, actual);
+            for (int i = 0; i < expected.length; i++) {
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int e = (expected[i] >> shift) & 0xFF;
+                    int a = (actual[i] >> shift) & 0xFF;
+                    error = Math.max(error, Math.abs(e - a));
+                }
+            }
+        }
+
+        System.out.printf("%dx%d, %d frames%n", size, size, frames);
+        System.out.printf("Color.hsb     %8.3f ms/frame%n", hsb);
+        System.out.printf("SBCompositor  %8.3f ms/frame (%.1fx)%n",
+                          composed, hsb / composed);
+        System.out.printf("max channel difference %d%n", error);
+    }
+
+    private static void hsb(double hue, int[] pixels, int w, int h) {
+
+        for (int y = 0; y < h; y++) {
+            double brightness = (h - 1 - y) / (double)(h - 1);
+            for (int x = 0; x < w; x++) {
+                double saturation = x / (double)(w - 1);
+                Color c = Color.hsb(hue, saturation, brightness);
+                pixels[y * w + x] = ColorMath.argb(
+                    c.getRed(), c.getGreen(), c.getBlue(), 1.0
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/* ColorMath.java - Shared color space conversion helpers
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+final class ColorMath {
+
+    /* sRGB transfer function lookup tables, 8 bit -> linear and back */
+    private static final float[] LINEAR = new float[256];
+    private static final byte[] ENCODED = new byte[4096];
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            LINEAR[i] = (float)ColorMath.toLinear(i / 255.0);
+        }
+        for (int i = 0; i < ENCODED.length; i++) {
+            double c = ColorMath.toGamma(i / (double)(ENCODED.length - 1));
+            ENCODED[i] = (byte)Math.round(c * 255);
+        }
+    }
+
+    private ColorMath() {
+    }
+
+    static int argb(double r, double g, double b, double a) {
+
+        return (int)Math.round(a * 255) << 24 |
+               (int)Math.round(r * 255) << 16 |
+               (int)Math.round(g * 255) << 8 |
+               (int)Math.round(b * 255);
+    }
+
+    /* blends a color over an opaque gray background */
+    static int composite(int argb, int gray) {
+
+        int a = argb >>> 24;
+        int r = ((argb >> 16) & 0xFF) * a + gray * (255 - a);
+        int g = ((argb >> 8) & 0xFF) * a + gray * (255 - a);
+        int b = (argb & 0xFF) * a + gray * (255 - a);
+        return 0xFF000000 | (r / 255) << 16 | (g / 255) << 8 | (b / 255);
+    }
+
+    static float decode(int channel) {
+        return LINEAR[channel];
+    }
+
+    /* alpha digits are left out only for an exact opacity of 1, a color
+     * that rounds to opaque still keeps them */
+    static String toHex(int argb, double opacity) {
+
+        if (opacity == 1.0)
+            return String.format("#%06X", argb & 0xFFFFFF);
+        return String.format(
+            "#%06X%02X", argb & 0xFFFFFF, argb >>> 24
+        );
+    }
+
+    static int encode(float linear) {
+
+        if (linear <= 0f)
+            return 0;
+        if (linear >= 1f)
+            return 255;
+        return ENCODED[(int)(linear * (ENCODED.length - 1) + 0.5f)] & 0xFF;
+    }
+
+    /* CIE L*a*b* relative to D65 */
+    static void linearToLab(double r, double g, double b, double[] lab) {
+
+        double x = 0.4124564 * r + 0.3575761 * g + 0.1804375 * b;
+        double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+        double z = 0.0193339 * r + 0.1191920 * g + 0.9503041 * b;
+        double fx = ColorMath.labCurve(x / 0.95047);
+        double fy = ColorMath.labCurve(y);
+        double fz = ColorMath.labCurve(z / 1.08883);
+        lab[0] = 116 * fy - 16;
+        lab[1] = 500 * (fx - fy);
+        lab[2] = 200 * (fy - fz);
+    }
+
+    static void linearToOklab(double r, double g, double b, double[] lab) {
+
+        double l = Math.cbrt(
+            0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b
+        );
+        double m = Math.cbrt(
+            0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b
+        );
+        double s = Math.cbrt(
+            0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b
+        );
+        lab[0] = 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+        lab[1] = 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+        lab[2] = 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+    }
+
+    static void oklabToLinear(double l, double a, double b, double[] rgb) {
+
+        double l3 = l + 0.3963377774 * a + 0.2158037573 * b;
+        double m3 = l - 0.1055613458 * a - 0.0638541728 * b;
+        double s3 = l - 0.0894841775 * a - 1.2914855480 * b;
+        l3 = l3 * l3 * l3;
+        m3 = m3 * m3 * m3;
+        s3 = s3 * s3 * s3;
+        rgb[0] = 4.0767416621 * l3 - 3.3077115913 * m3 + 0.2309699292 * s3;
+        rgb[1] = -1.2684380046 * l3 + 2.6097574011 * m3 - 0.3413193965 * s3;
+        rgb[2] = -0.0041960863 * l3 - 0.7034186147 * m3 + 1.7076147010 * s3;
+    }
+
+    static double toGamma(double linear) {
+
+        if (linear <= 0.0031308)
+            return linear * 12.92;
+        return 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    }
+
+    static double toLinear(double gamma) {
+
+        if (gamma <= 0.04045)
+            return gamma / 12.92;
+        return Math.pow((gamma + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labCurve(double t) {
+
+        if (t > 216.0 / 24389.0)
+            return Math.cbrt(t);
+        return (24389.0 / 27.0 * t + 16) / 116;
+    }
+}
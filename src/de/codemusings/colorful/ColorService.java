@@ -0,0 +1,315 @@
+/* ColorService.java - A local socket service publishing the current color
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.IOException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/* Line based protocol on the loopback interface:
+ *
+ *   server -> client   #RRGGBBAA        on connect and on every change
+ *   client -> server   SET <color>      sets the current color, any CSS
+ *                                       color value
+ *                      GET              resends the current color
+ *
+ * A client that cannot keep up only ever receives the latest color, the
+ * values published while its socket buffer was full are dropped.
+ */
+public class ColorService implements Runnable {
+
+    private static final int MESSAGE_LENGTH = 10;
+    private static final int MAX_LINE_LENGTH = 128;
+
+    private final InetSocketAddress address;
+    private final Executor executor;
+    private final IntConsumer receiver;
+
+    private final AtomicInteger color;
+    private final AtomicBoolean published;
+
+    /* only used by the selector thread */
+    private final CssColorParser parser;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    public ColorService(int port, Executor executor, IntConsumer receiver) {
+
+        this.address = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), port
+        );
+        this.executor = executor;
+        this.receiver = receiver;
+        this.color = new AtomicInteger(0xFFFFFFFF);
+        this.published = new AtomicBoolean(false);
+        this.parser = new CssColorParser();
+    }
+
+    public int getPort() {
+        return this.server.socket().getLocalPort();
+    }
+
+    public void publish(int argb) {
+
+        this.color.set(argb);
+        if (this.published.compareAndSet(false, true))
+            this.selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+
+        while (this.running) {
+            try {
+                this.selector.select();
+            } catch (IOException e) {
+                break;
+            }
+
+            if (this.published.getAndSet(false))
+                this.broadcast();
+
+            Iterator<SelectionKey> keys =
+                this.selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        this.accept();
+                    if (key.isValid() && key.isReadable())
+                        this.read(key);
+                    if (key.isValid() && key.isWritable())
+                        this.write(key);
+                } catch (IOException e) {
+                    this.close(key);
+                }
+            }
+        }
+
+        for (SelectionKey key : this.selector.keys())
+            this.close(key);
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            /* nothing left to release */
+        }
+    }
+
+    public void start() throws IOException {
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        this.server.configureBlocking(false);
+        this.server.bind(this.address);
+        this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+
+        this.running = true;
+        Thread thread = new Thread(this, "Colorful Color Service");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = this.server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(
+            this.selector, SelectionKey.OP_READ, new Client()
+        );
+        this.send(key, true);
+    }
+
+    private void broadcast() {
+
+        for (SelectionKey key : this.selector.keys()) {
+            if (!(key.attachment() instanceof Client))
+                continue;
+            try {
+                this.send(key, false);
+            } catch (IOException e) {
+                this.close(key);
+            }
+        }
+    }
+
+    private void close(SelectionKey key) {
+
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            /* the connection is gone either way */
+        }
+    }
+
+    private void execute(SelectionKey key, int start, int end)
+        throws IOException
+    {
+        Client client = (Client)key.attachment();
+        StringBuilder line = client.line;
+        line.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = (char)(client.in.get(i) & 0xFF);
+            if (c != '\r')
+                line.append(c);
+        }
+
+        if (line.length() == 3 && line.indexOf("GET") == 0) {
+            this.send(key, true);
+        } else if (line.indexOf("SET ") == 0) {
+            long value = this.parser.parse(line, 4, line.length());
+            if (value < 0)
+                return;
+            int argb = (int)value;
+            this.executor.execute(() -> this.receiver.accept(argb));
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+
+        Client client = (Client)key.attachment();
+        SocketChannel channel = (SocketChannel)key.channel();
+        if (channel.read(client.in) < 0) {
+            this.close(key);
+            return;
+        }
+
+        /* execute every complete line in the buffer */
+        int start = 0;
+        for (int i = 0; i < client.in.position(); i++) {
+            if (client.in.get(i) != '\n')
+                continue;
+            this.execute(key, start, i);
+            start = i + 1;
+        }
+        client.in.flip();
+        client.in.position(start);
+        client.in.compact();
+
+        /* a line that does not fit the buffer is a protocol error */
+        if (!client.in.hasRemaining())
+            this.close(key);
+    }
+
+    private void send(SelectionKey key, boolean force) throws IOException {
+
+        Client client = (Client)key.attachment();
+        int argb = this.color.get();
+
+        /* coalesce, a message is still pending for this client, a GET
+         * among them still gets its reply */
+        if (client.out.hasRemaining()) {
+            client.stale = true;
+            client.forced |= force;
+            return;
+        }
+        if (!force && argb == client.sent)
+            return;
+
+        client.out.clear();
+        client.out.put((byte)'#');
+        int rgba = argb << 8 | argb >>> 24;
+        for (int shift = 28; shift >= 0; shift -= 4)
+            client.out.put((byte)Character.toUpperCase(
+                Character.forDigit((rgba >>> shift) & 0xF, 16)
+            ));
+        client.out.put((byte)'\n');
+        client.out.flip();
+        client.sent = argb;
+        client.stale = false;
+        client.forced = false;
+
+        this.write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+
+        Client client = (Client)key.attachment();
+        ((SocketChannel)key.channel()).write(client.out);
+
+        if (client.out.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        if (client.stale)
+            this.send(key, client.forced);
+    }
+
+    private static class Client {
+
+        private final ByteBuffer in;
+        private final ByteBuffer out;
+        private final StringBuilder line;
+
+        private int sent;
+        private boolean stale;
+        private boolean forced;
+
+        private Client() {
+            this.in = ByteBuffer.allocate(MAX_LINE_LENGTH);
+            this.out = ByteBuffer.allocate(MESSAGE_LENGTH);
+            this.out.flip();
+            this.line = new StringBuilder(MAX_LINE_LENGTH);
+        }
+    }
+}
@@ -38,11 +38,10 @@ import javafx.beans.property.SimpleObjectProperty;
 
 import javafx.beans.value.ChangeListener;
 
-import javafx.scene.effect.BlendMode;
+import javafx.scene.Group;
+import javafx.scene.Node;
 
-import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
+import javafx.scene.effect.BlendMode;
 
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -57,9 +56,11 @@ public class ColorView extends Pane {
     private final ObjectProperty<Double> saturationProperty;
     private final ObjectProperty<Double> brightnessProperty;
     private final ObjectProperty<Double> opacityProperty;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
 
-    private final WritableImage background;
     private final Region foreground;
+    private final Renderer backend;
+    private final LazyRenderer renderer;
 
     public ColorView() {
         this(200, 200);
@@ -75,53 +76,51 @@ public class ColorView extends Pane {
         this.saturationProperty = new SimpleObjectProperty<>(0.0);
         this.brightnessProperty = new SimpleObjectProperty<>(1.0);
         this.opacityProperty = new SimpleObjectProperty<>(1.0);
-
-        /* image view used to draw the background grid */
-        this.background = new WritableImage((int)width - 2, (int)height - 2);
-        this.drawBackground();
-        ImageView view = new ImageView(this.background);
-        super.getChildren().add(view);
-        view.relocate(1, 1);
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
 
         /* region to display the currently selected color */
+        int w = (int)width - 2;
+        int h = (int)height - 2;
         this.foreground = new Region();
-        this.foreground.setPrefSize((int)width - 2, (int)height - 2);
-        this.updateForeground();
-        super.getChildren().add(foreground);
-        this.foreground.relocate(1, 1);
+        this.foreground.setPrefSize(w, h);
+
+        /* only the background grid differs between the backends */
+        if (RenderBackend.get() == RenderBackend.GRADIENT)
+            this.backend = new GradientRenderer(w, h);
+        else
+            this.backend = new PixelRenderer(w, h);
+        Node view = this.backend.getNode();
+        super.getChildren().add(view);
+        view.relocate(1, 1);
+        this.renderer = new LazyRenderer(
+            this, this.backend::render, this.backend.getBuffers()
+        );
 
         /* update region color on change */
         ChangeListener<Double> listener = (observable, oldValue, newValue) -> {
-            this.updateForeground();
+            this.renderer.invalidate();
         };
         this.brightnessProperty.addListener(listener);
         this.hueProperty.addListener(listener);
         this.saturationProperty.addListener(listener);
         this.opacityProperty.addListener(listener);
-    }
-
-    private void drawBackground() {
-
-        double w = this.background.getWidth();
-        double h = this.background.getHeight();
-
-        PixelWriter writer = this.background.getPixelWriter();
-
-        for (int y = 0; y < h; y++) {
-            double opacity = (h - 1 - y) / (h - 1); 
-            for (int x = 0; x < w; x++) {
-                if (x / 3 % 2 == y / 3 % 2)
-                    writer.setColor(x, y, Color.gray(0.75));
-                else
-                    writer.setColor(x, y, Color.gray(1.0));
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.renderer.invalidate();
             }
-        }
+        );
     }
 
     public ObjectProperty<Double> brightnessProperty() {
         return this.brightnessProperty;
     }
 
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
     public ObjectProperty<Double> hueProperty() {
         return this.hueProperty;
     }
@@ -142,8 +141,75 @@ public class ColorView extends Pane {
             this.brightnessProperty.getValue(),
             this.opacityProperty.getValue()
         );
+        c = this.colorVisionProperty.getValue().filter(c);
         this.foreground.setBackground(
             new Background(new BackgroundFill(c, null, null))
         );
     }
+
+    private final class GradientRenderer implements Renderer {
+
+        private final Pane pane;
+
+        GradientRenderer(int width, int height) {
+
+            this.pane = GradientLayers.newPane(width, height);
+            this.pane.getChildren().addAll(
+                Checkerboard.newCanvas(width, height), ColorView.this.foreground
+            );
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void render() {
+            ColorView.this.updateForeground();
+        }
+    }
+
+    private final class PixelRenderer implements Renderer {
+
+        private final PixelBuffer background;
+        private final Group group;
+
+        PixelRenderer(int width, int height) {
+
+            this.background = new PixelBuffer(width, height);
+            this.group = new Group(
+                this.background.getView(), ColorView.this.foreground
+            );
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[] { this.background };
+        }
+
+        @Override
+        public Node getNode() {
+            return this.group;
+        }
+
+        @Override
+        public void render() {
+
+            if (this.background.allocate()) {
+                Checkerboard.fill(
+                    this.background.getPixels(),
+                    this.background.getWidth(),
+                    this.background.getHeight()
+                );
+                this.background.flush();
+            }
+            ColorView.this.updateForeground();
+        }
+    }
 }
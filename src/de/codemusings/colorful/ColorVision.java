@@ -0,0 +1,116 @@
+/* ColorVision.java - Color vision deficiency simulation modes
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.paint.Color;
+
+public enum ColorVision {
+
+    NORMAL("Normal Vision", null),
+
+    /* Machado, Oliveira and Fernandes (2009), severity 1.0, linear RGB */
+    PROTANOPIA("Protanopia", new float[] {
+         0.152286f,  1.052583f, -0.204868f,
+         0.114503f,  0.786281f,  0.099216f,
+        -0.003882f, -0.048116f,  1.051998f
+    }),
+    DEUTERANOPIA("Deuteranopia", new float[] {
+         0.367322f,  0.860646f, -0.227968f,
+         0.280085f,  0.672501f,  0.047413f,
+        -0.011820f,  0.042940f,  0.968881f
+    }),
+    TRITANOPIA("Tritanopia", new float[] {
+         1.255528f, -0.076749f, -0.178779f,
+        -0.078411f,  0.930809f,  0.147602f,
+         0.004733f,  0.691367f,  0.303900f
+    });
+
+    private final String label;
+    private final float[] matrix;
+
+    private ColorVision(String label, float[] matrix) {
+        this.label = label;
+        this.matrix = matrix;
+    }
+
+    public Color filter(Color color) {
+
+        if (this.matrix == null)
+            return color;
+
+        int argb = this.filter(ColorMath.argb(
+            color.getRed(),
+            color.getGreen(),
+            color.getBlue(),
+            color.getOpacity()
+        ));
+        return Color.rgb(
+            (argb >> 16) & 0xFF,
+            (argb >> 8) & 0xFF,
+            argb & 0xFF,
+            color.getOpacity()
+        );
+    }
+
+    public int filter(int argb) {
+
+        if (this.matrix == null)
+            return argb;
+
+        float[] m = this.matrix;
+        float r = ColorMath.decode((argb >> 16) & 0xFF);
+        float g = ColorMath.decode((argb >> 8) & 0xFF);
+        float b = ColorMath.decode(argb & 0xFF);
+        return argb & 0xFF000000 |
+            ColorMath.encode(m[0] * r + m[1] * g + m[2] * b) << 16 |
+            ColorMath.encode(m[3] * r + m[4] * g + m[5] * b) << 8 |
+            ColorMath.encode(m[6] * r + m[7] * g + m[8] * b);
+    }
+
+    public void filter(int[] pixels, int offset, int length) {
+
+        if (this.matrix == null)
+            return;
+
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            pixels[i] = this.filter(pixels[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+}
@@ -33,6 +33,7 @@
 
 package de.codemusings.colorful;
 
+import java.io.File;
 import java.io.IOException;
 
 import javafx.application.Application;
@@ -55,10 +56,25 @@ public class Colorful extends Application {
             )
         );
     
+        Scene scene = new Scene(root);
         stage.setTitle("Colorful");
         stage.setResizable(false);
-        stage.setScene(new Scene(root));
+        stage.setScene(scene);
         stage.sizeToScene();
+
+        /* drags recorded here can be replayed by the DragReplay bench */
+        String record = System.getProperty("colorful.record");
+        if (record != null) {
+            DragRecording recording = new DragRecording();
+            recording.record(scene);
+            stage.setOnHidden(e -> {
+                try {
+                    recording.write(new File(record));
+                } catch (IOException ex) {
+                    System.err.println("Recording not saved: " + ex);
+                }
+            });
+        }
         stage.show();
     }
 }
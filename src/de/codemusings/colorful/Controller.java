@@ -33,20 +33,49 @@
 
 package de.codemusings.colorful;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+
 import java.util.Collections;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import javafx.application.Platform;
+
+import javafx.collections.FXCollections;
+
+import javafx.event.ActionEvent;
 
 import javafx.fxml.FXML;
 
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
 
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 
+import javafx.scene.Scene;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.SpinnerValueFactory.DoubleSpinnerValueFactory;
 import javafx.scene.control.SpinnerValueFactory.IntegerSpinnerValueFactory;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.ToggleGroup;
 
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -54,9 +83,15 @@ import javafx.scene.layout.Pane;
 
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.DataFormat;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
 
 import javafx.scene.paint.Color;
 
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
 public class Controller implements ChangeListener<Number> {
 
     @FXML private Spinner<Double> hueSpinner;
@@ -72,8 +107,21 @@ public class Controller implements ChangeListener<Number> {
     @FXML private SBPickerControl sbPicker;
     @FXML private HuePickerControl huePicker;
     @FXML private OpacityPickerControl opacityPicker;
+    @FXML private TemperaturePickerControl temperaturePicker;
+    @FXML private Label temperatureLabel;
     @FXML private ColorView colorView;
 
+    @FXML private ChoiceBox<ColorVision> visionChoice;
+
+    @FXML private CheckMenuItem matchItem;
+    @FXML private ToggleGroup matchMetricGroup;
+    @FXML private ToggleGroup matchThresholdGroup;
+
+    @FXML private GradientEditorControl gradientEditor;
+    @FXML private ChoiceBox<Interpolation> interpolationChoice;
+
+    @FXML private PaletteControl paletteControl;
+
     private final DoubleSpinnerValueFactory hueValueFactory
     = new DoubleSpinnerValueFactory(0.0, 360.0);
 
@@ -95,7 +143,25 @@ public class Controller implements ChangeListener<Number> {
     private final IntegerSpinnerValueFactory blueValueFactory
     = new IntegerSpinnerValueFactory(0, 255, 255);
 
+    private final ObjectProperty<Color> colorProperty
+    = new SimpleObjectProperty<>(Color.WHITE);
+
+    private final CssColorParser colorParser = new CssColorParser();
+
+    private ColorService colorService;
+
+    private PaletteQuantizer quantizer;
+    private int quantizerVersion;
+
+    /* the transform being previewed, its start values and the last one
+     * applied, kept for undo */
+    private PaletteBatch paletteBatch;
+    private PaletteTransform paletteTransform;
+    private double[] transformOrigin;
+    private PaletteBatch appliedBatch;
+
     private boolean isUpdating = false;
+    private boolean isSyncingTemperature = false;
 
     @Override
     public void changed(ObservableValue<? extends Number> observable,
@@ -135,26 +201,52 @@ public class Controller implements ChangeListener<Number> {
             this.brightnessValueFactory.setValue(c.getBrightness());
         }
 
-        if (this.opacityValueFactory.getValue() == 1.0) {
-            this.hexField.setText(String.format(
-                "#%02X%02X%02X",
-                Math.round(c.getRed() * 255), 
-                Math.round(c.getGreen() * 255), 
-                Math.round(c.getBlue() * 255) 
-            ));
-        } else {
-            this.hexField.setText(String.format(
-                "#%02X%02X%02X%02X",
-                Math.round(c.getRed() * 255), 
-                Math.round(c.getGreen() * 255), 
-                Math.round(c.getBlue() * 255),
-                Math.round(c.getOpacity() * 255) 
-            ));
-        }
+        this.hexField.setText(ColorMath.toHex(ColorMath.argb(
+            c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()
+        ), c.getOpacity()));
+        this.colorProperty.setValue(c);
 
         this.isUpdating = false;
     }
 
+    @FXML
+    private void addToPalette() {
+
+        Color c = this.colorProperty.getValue();
+        this.paletteControl.getPalette().add(ColorMath.argb(
+            c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()
+        ));
+    }
+
+    @FXML
+    private void applyTransform() {
+
+        if (this.paletteBatch == null)
+            return;
+        PaletteBatch batch = this.paletteBatch;
+        this.cancelTransform();
+        if (batch.apply())
+            this.appliedBatch = batch;
+    }
+
+    @FXML
+    private void cancelTransform() {
+
+        this.paletteBatch = null;
+        this.paletteTransform = null;
+        this.paletteControl.setPreview(null);
+    }
+
+    @FXML
+    private void clearPalette() {
+        this.paletteControl.getPalette().clear();
+    }
+
+    @FXML
+    private void copyGradientToClipboard() {
+        this.copyToClipboard(this.gradientEditor.getGradient().toCss());
+    }
+
     @FXML
     private void copyHexToClipboard() {
         this.copyToClipboard(this.hexField.textProperty().getValue());
@@ -199,6 +291,141 @@ public class Controller implements ChangeListener<Number> {
         );
     }
 
+    /* text or text files dropped on the palette */
+    private void dropColors(DragEvent e) {
+
+        Dragboard board = e.getDragboard();
+        StringBuilder text = new StringBuilder();
+        if (board.hasFiles()) {
+            for (File file : board.getFiles()) {
+                try {
+                    text.append(new String(
+                        Files.readAllBytes(file.toPath()),
+                        StandardCharsets.UTF_8
+                    ));
+                    text.append('\n');
+                } catch (IOException ex) {
+                    new Alert(
+                        Alert.AlertType.ERROR,
+                        "Could not read " + file.getName() + ": " +
+                        ex.getMessage()
+                    ).show();
+                    e.setDropCompleted(false);
+                    e.consume();
+                    return;
+                }
+            }
+        } else if (board.hasString()) {
+            text.append(board.getString());
+        }
+        this.importColors(text);
+        e.setDropCompleted(true);
+        e.consume();
+    }
+
+    /* takes the color typed into the hex field in any CSS syntax, or
+     * restores the field */
+    @FXML
+    private void enterColor() {
+
+        Color c = this.colorProperty.getValue();
+        String current = ColorMath.toHex(ColorMath.argb(
+            c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()
+        ), c.getOpacity());
+        if (this.hexField.getText().equals(current))
+            return;
+
+        long argb = this.colorParser.parse(this.hexField.getText());
+        if (argb < 0) {
+            this.hexField.setText(current);
+            return;
+        }
+        this.setColor(Color.rgb(
+            (int)(argb >> 16) & 0xFF,
+            (int)(argb >> 8) & 0xFF,
+            (int)argb & 0xFF,
+            (argb >>> 24) / 255.0
+        ));
+    }
+
+    /* renders the SB plane, the hue strip or the gradient at the size
+     * entered into a PNG, in the background */
+    @FXML
+    private void exportImage(ActionEvent e) {
+
+        String target = (String)((MenuItem)e.getSource()).getUserData();
+        TextInputDialog dialog = new TextInputDialog(
+            target.equals("SB_PLANE") ? "16384x16384"
+            : target.equals("HUE_STRIP") ? "1024x16384" : "16384x1024"
+        );
+        dialog.setTitle("Export Image");
+        dialog.setHeaderText(
+            "Width and height in pixels, " + ImageExport.MIN_SIZE + " to " +
+            ImageExport.MAX_SIZE + " each:"
+        );
+        Optional<String> size = dialog.showAndWait();
+        if (!size.isPresent())
+            return;
+        Matcher m = Pattern.compile("\\s*(\\d{1,6})\\s*[xX*]\\s*(\\d{1,6})\\s*")
+            .matcher(size.get());
+        int width = m.matches() ? Integer.parseInt(m.group(1)) : 0;
+        int height = m.matches() ? Integer.parseInt(m.group(2)) : 0;
+        if (Math.min(width, height) < ImageExport.MIN_SIZE ||
+                Math.max(width, height) > ImageExport.MAX_SIZE) {
+            new Alert(
+                Alert.AlertType.ERROR, "Invalid image size: " + size.get()
+            ).show();
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(
+            new FileChooser.ExtensionFilter("PNG Image", "*.png")
+        );
+        File output = chooser.showSaveDialog(
+            this.hexField.getScene().getWindow()
+        );
+        if (output == null)
+            return;
+
+        /* everything the export reads is captured on the FX thread */
+        ColorVision vision = this.visionChoice.getValue();
+        ImageExport.Source source;
+        if (target.equals("SB_PLANE"))
+            source = ImageExport.sbPlane(
+                this.hueValueFactory.getValue(), vision
+            );
+        else if (target.equals("HUE_STRIP"))
+            source = ImageExport.hueStrip(vision);
+        else
+            source = ImageExport.gradient(
+                this.gradientEditor.getGradient(), width, vision
+            );
+
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                ImageExport.export(source, width, height, output.toPath());
+            } catch (IOException | RuntimeException ex) {
+                String message = ex.getMessage() != null
+                                ? ex.getMessage() : ex.toString();
+                Platform.runLater(() -> new Alert(
+                    Alert.AlertType.ERROR, "Export failed: " + message
+                ).show());
+                return;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Platform.runLater(() -> new Alert(
+                Alert.AlertType.INFORMATION, String.format(
+                    java.util.Locale.US, "Exported %dx%d pixels in %.1f s.",
+                    width, height, seconds
+                )
+            ).show());
+        }, "Colorful Export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     @FXML
     private void initialize() {
 
@@ -222,6 +449,17 @@ public class Controller implements ChangeListener<Number> {
             this.hueValueFactory.valueProperty()
         );
 
+        /* temperature picker, synced both ways through the color */
+        ChangeListener<Double> pick = (observable, oldValue, newValue) -> {
+            this.pickTemperature();
+        };
+        this.temperaturePicker.temperatureProperty().addListener(pick);
+        this.temperaturePicker.tintProperty().addListener(pick);
+        this.colorProperty.addListener((observable, oldValue, newValue) -> {
+            this.syncTemperature(newValue);
+        });
+        this.syncTemperature(this.colorProperty.getValue());
+
         /* opacity picker bindings */
         Bindings.<Double>bindBidirectional(
             this.opacityPicker.brightnessProperty(),
@@ -258,6 +496,97 @@ public class Controller implements ChangeListener<Number> {
             this.saturationValueFactory.valueProperty()
         );
 
+        /* color vision simulation bindings */
+        this.visionChoice.setItems(
+            FXCollections.observableArrayList(ColorVision.values())
+        );
+        this.visionChoice.setValue(ColorVision.NORMAL);
+        this.sbPicker.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+        this.huePicker.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+        this.opacityPicker.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+        this.temperaturePicker.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+        this.colorView.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+
+        /* match overlay settings from the tools menu */
+        this.updateMatch();
+
+        /* gradient editor bindings */
+        this.interpolationChoice.setItems(
+            FXCollections.observableArrayList(Interpolation.values())
+        );
+        this.interpolationChoice.setValue(Interpolation.SRGB);
+        this.gradientEditor.interpolationProperty().bind(
+            this.interpolationChoice.valueProperty()
+        );
+        this.gradientEditor.colorProperty().bind(this.colorProperty);
+        this.gradientEditor.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+
+        /* palette bindings */
+        this.paletteControl.colorVisionProperty().bind(
+            this.visionChoice.valueProperty()
+        );
+        this.paletteControl.getPalette().versionProperty().addListener(
+            (observable, oldValue, newValue) -> {
+                if (this.paletteBatch != null &&
+                        !this.paletteBatch.isCurrent())
+                    this.cancelTransform();
+            }
+        );
+        this.paletteControl.setOnDragOver((DragEvent e) -> {
+            if (e.getDragboard().hasFiles() || e.getDragboard().hasString())
+                e.acceptTransferModes(TransferMode.COPY);
+            e.consume();
+        });
+        this.paletteControl.setOnDragDropped(this::dropColors);
+        this.paletteControl.setOnSelect((int argb) -> this.setColor(
+            Color.rgb(
+                (argb >> 16) & 0xFF,
+                (argb >> 8) & 0xFF,
+                argb & 0xFF,
+                (argb >>> 24) / 255.0
+            )
+        ));
+
+        /* the hex field takes any CSS color when left or on enter */
+        this.hexField.focusedProperty().addListener(
+            (observable, oldValue, newValue) -> {
+                if (!newValue)
+                    this.enterColor();
+            }
+        );
+
+        /* optional local service for other tools */
+        String port = System.getProperty("colorful.service.port");
+        if (port != null) {
+            try {
+                this.startColorService(Integer.parseInt(port));
+            } catch (NumberFormatException e) {
+                System.err.println(
+                    "Color service unavailable: invalid port " + port
+                );
+            }
+        }
+
+        /* picker offsets drive the palette transform preview */
+        ChangeListener<Double> transform = (observable, oldValue, newValue) -> {
+            this.previewTransform();
+        };
+        this.hueValueFactory.valueProperty().addListener(transform);
+        this.saturationValueFactory.valueProperty().addListener(transform);
+        this.brightnessValueFactory.valueProperty().addListener(transform);
+
         /* attach listener to update fields */
         this.brightnessValueFactory.valueProperty().addListener(this);
         this.hueValueFactory.valueProperty().addListener(this);
@@ -279,6 +608,306 @@ public class Controller implements ChangeListener<Number> {
         this.blueSpinner.setValueFactory(this.blueValueFactory);
     }
 
+    /* adds all colors in a block of text to the palette in one change and
+     * reports how fast they were parsed */
+    private void importColors(CharSequence text) {
+
+        long start = System.nanoTime();
+        IntStream.Builder colors = IntStream.builder();
+        int skipped = this.colorParser.parseAll(text, colors);
+        int[] added = colors.build().toArray();
+        this.paletteControl.getPalette().addAll(added, 0, added.length);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        new Alert(Alert.AlertType.INFORMATION, String.format(
+            java.util.Locale.US,
+            "Added %d colors, skipped %d, in %.1f ms (%.0f colors/s).",
+            added.length, skipped, seconds * 1000, added.length / seconds
+        )).show();
+    }
+
+    @FXML
+    private void quantizeImage() {
+        this.quantizeImage(false);
+    }
+
+    @FXML
+    private void quantizeImageDithered() {
+        this.quantizeImage(true);
+    }
+
+    private void quantizeImage(boolean dither) {
+
+        Palette palette = this.paletteControl.getPalette();
+        if (palette.size() == 0) {
+            new Alert(
+                Alert.AlertType.INFORMATION,
+                "Add colors to the palette before quantizing an image."
+            ).show();
+            return;
+        }
+        if (palette.size() > PaletteQuantizer.MAX_COLORS) {
+            new Alert(
+                Alert.AlertType.INFORMATION,
+                "Images can only be quantized to palettes of up to " +
+                PaletteQuantizer.MAX_COLORS + " colors."
+            ).show();
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+            "Images", "*.png", "*.jpg", "*.jpeg", "*.gif", "*.bmp"
+        ));
+        File input = chooser.showOpenDialog(
+            this.hexField.getScene().getWindow()
+        );
+        if (input == null)
+            return;
+        chooser.getExtensionFilters().setAll(
+            new FileChooser.ExtensionFilter("PNG Image", "*.png")
+        );
+        File output = chooser.showSaveDialog(
+            this.hexField.getScene().getWindow()
+        );
+        if (output == null)
+            return;
+
+        /* the lookup cube is only rebuilt when the palette changed, and
+         * then on the worker */
+        int version = palette.versionProperty().get();
+        PaletteQuantizer cached = this.quantizerVersion == version
+                                ? this.quantizer : null;
+        int[] colors = cached == null ? palette.toArray() : null;
+        Thread thread = new Thread(() -> {
+            try {
+                PaletteQuantizer quantizer = cached;
+                if (quantizer == null) {
+                    PaletteQuantizer built = new PaletteQuantizer(colors);
+                    Platform.runLater(() -> {
+                        this.quantizer = built;
+                        this.quantizerVersion = version;
+                    });
+                    quantizer = built;
+                }
+                quantizer.quantize(input, output, dither);
+            } catch (IOException | RuntimeException e) {
+                String message = e.getMessage() != null
+                                ? e.getMessage() : e.toString();
+                Platform.runLater(() -> new Alert(
+                    Alert.AlertType.ERROR, message
+                ).show());
+            }
+        }, "Colorful Quantizer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FXML
+    private void openRecolorView() {
+
+        RecolorView view = new RecolorView();
+        view.hueProperty().bind(this.hueValueFactory.valueProperty());
+        view.saturationProperty().bind(
+            this.saturationValueFactory.valueProperty()
+        );
+        view.brightnessProperty().bind(
+            this.brightnessValueFactory.valueProperty()
+        );
+        view.opacityValueProperty().bind(
+            this.opacityValueFactory.valueProperty()
+        );
+
+        Stage stage = new Stage();
+        stage.setTitle("Recolor Image");
+        stage.setScene(new Scene(view));
+        stage.setOnHidden(e -> view.dispose());
+        stage.show();
+    }
+
+    @FXML
+    private void pasteColor() {
+
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text == null)
+            return;
+        this.hexField.setText(text);
+        this.enterColor();
+    }
+
+    @FXML
+    private void pasteColorsToPalette() {
+
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text != null)
+            this.importColors(text);
+    }
+
+    private void previewTransform() {
+
+        if (this.paletteBatch == null)
+            return;
+        this.paletteControl.setPreview(this.paletteBatch.preview(
+            this.paletteTransform,
+            this.hueValueFactory.getValue() - this.transformOrigin[0],
+            this.saturationValueFactory.getValue() - this.transformOrigin[1],
+            this.brightnessValueFactory.getValue() - this.transformOrigin[2]
+        ));
+    }
+
+    /* sets the color from the temperature picker at the current brightness,
+     * or full brightness from black */
+    private void pickTemperature() {
+
+        if (this.isSyncingTemperature)
+            return;
+
+        double kelvin = this.temperaturePicker.temperatureProperty().getValue();
+        double tint = this.temperaturePicker.tintProperty().getValue();
+        double[] rgb = new double[3];
+        Planckian.toLinear(kelvin, tint, rgb);
+        Color c = Color.color(
+            ColorMath.toGamma(rgb[0]),
+            ColorMath.toGamma(rgb[1]),
+            ColorMath.toGamma(rgb[2])
+        );
+        double b = this.brightnessValueFactory.getValue();
+
+        this.isSyncingTemperature = true;
+        this.setColor(Color.hsb(
+            c.getHue(),
+            c.getSaturation(),
+            b > 0 ? b : 1.0,
+            this.opacityValueFactory.getValue()
+        ));
+        this.isSyncingTemperature = false;
+        this.showTemperature(kelvin, tint);
+    }
+
+    private void setColor(Color c) {
+
+        this.isUpdating = true;
+        this.opacityValueFactory.setValue(c.getOpacity());
+        this.hueValueFactory.setValue(c.getHue());
+        this.saturationValueFactory.setValue(c.getSaturation());
+        this.brightnessValueFactory.setValue(c.getBrightness());
+        this.isUpdating = false;
+
+        /* sync the remaining fields once for the whole color */
+        this.changed(this.hueValueFactory.valueProperty(), null, null);
+    }
+
+    private void showTemperature(double kelvin, double tint) {
+
+        this.temperatureLabel.setText(String.format(
+            java.util.Locale.US, "%.0f K, Duv %+.4f", kelvin, tint
+        ));
+    }
+
+    private void startColorService(int port) {
+
+        this.colorService = new ColorService(
+            port,
+            Platform::runLater,
+            (int argb) -> this.setColor(Color.rgb(
+                (argb >> 16) & 0xFF,
+                (argb >> 8) & 0xFF,
+                argb & 0xFF,
+                (argb >>> 24) / 255.0
+            ))
+        );
+        try {
+            this.colorService.start();
+        } catch (IOException e) {
+            System.err.println("Color service unavailable: " + e);
+            this.colorService = null;
+            return;
+        }
+
+        this.colorProperty.addListener((observable, oldValue, newValue) -> {
+            this.colorService.publish(ColorMath.argb(
+                newValue.getRed(),
+                newValue.getGreen(),
+                newValue.getBlue(),
+                newValue.getOpacity()
+            ));
+        });
+    }
+
+    /* moves the temperature picker to the nearest temperature of a color */
+    private void syncTemperature(Color c) {
+
+        if (this.isSyncingTemperature)
+            return;
+
+        double[] cct = new double[2];
+        if (!Planckian.fromLinear(
+                ColorMath.toLinear(c.getRed()),
+                ColorMath.toLinear(c.getGreen()),
+                ColorMath.toLinear(c.getBlue()),
+                cct)) {
+            this.temperatureLabel.setText("No temperature");
+            return;
+        }
+
+        double tint = TemperaturePickerControl.MAX_TINT;
+        this.isSyncingTemperature = true;
+        this.temperaturePicker.temperatureProperty().setValue(Math.max(
+            Planckian.MIN_KELVIN, Math.min(Planckian.MAX_KELVIN, cct[0])
+        ));
+        this.temperaturePicker.tintProperty().setValue(
+            Math.max(-tint, Math.min(tint, cct[1]))
+        );
+        this.isSyncingTemperature = false;
+        this.showTemperature(cct[0], cct[1]);
+    }
+
+    /* previews the transform named by the menu item until applied or
+     * canceled, relative to the current hue, saturation and brightness */
+    @FXML
+    private void startTransform(ActionEvent e) {
+
+        Object transform = ((MenuItem)e.getSource()).getUserData();
+        this.paletteBatch = new PaletteBatch(this.paletteControl.getPalette());
+        this.paletteTransform = PaletteTransform.valueOf((String)transform);
+        this.transformOrigin = new double[] {
+            this.hueValueFactory.getValue(),
+            this.saturationValueFactory.getValue(),
+            this.brightnessValueFactory.getValue()
+        };
+        this.previewTransform();
+    }
+
+    /* highlights colors close to the one current when it was enabled */
+    @FXML
+    private void toggleMatch() {
+
+        this.sbPicker.matchColorProperty().setValue(
+            this.matchItem.isSelected() ? this.colorProperty.getValue() : null
+        );
+    }
+
+    @FXML
+    private void undoTransform() {
+
+        if (this.appliedBatch != null)
+            this.appliedBatch.undo();
+        this.appliedBatch = null;
+    }
+
+    @FXML
+    private void updateMatch() {
+
+        String metric = (String)this.matchMetricGroup.getSelectedToggle()
+            .getUserData();
+        String threshold = (String)this.matchThresholdGroup.getSelectedToggle()
+            .getUserData();
+        this.sbPicker.matchMetricProperty().setValue(DeltaE.valueOf(metric));
+        this.sbPicker.matchThresholdProperty().setValue(
+            Double.valueOf(threshold)
+        );
+    }
+
     private boolean isHSBSource(ObservableValue<? extends Number> observable) {
 
         return observable == this.hueValueFactory.valueProperty() ||
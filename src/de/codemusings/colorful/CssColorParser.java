@@ -0,0 +1,672 @@
+/* CssColorParser.java - Parser for CSS color values.
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.function.IntConsumer;
+
+/* Parses the CSS Color 4 syntaxes: hex, named colors, rgb(), hsl(), hwb(),
+ * lab(), lch(), oklab(), oklch() and color() in the srgb, srgb-linear,
+ * display-p3 and xyz spaces, in both the space and the legacy comma form.
+ * The parser walks the characters in place, so parsing allocates nothing
+ * once it is created. Colors outside of sRGB are clipped per channel.
+ * Instances are not thread safe.
+ */
+final class CssColorParser {
+
+    private static final String[] NAMED = {
+        "aliceblue F0F8FF", "antiquewhite FAEBD7", "aqua 00FFFF",
+        "aquamarine 7FFFD4", "azure F0FFFF", "beige F5F5DC", "bisque FFE4C4",
+        "black 000000", "blanchedalmond FFEBCD", "blue 0000FF",
+        "blueviolet 8A2BE2", "brown A52A2A", "burlywood DEB887",
+        "cadetblue 5F9EA0", "chartreuse 7FFF00", "chocolate D2691E",
+        "coral FF7F50", "cornflowerblue 6495ED", "cornsilk FFF8DC",
+        "crimson DC143C", "cyan 00FFFF", "darkblue 00008B", "darkcyan 008B8B",
+        "darkgoldenrod B8860B", "darkgray A9A9A9", "darkgreen 006400",
+        "darkgrey A9A9A9", "darkkhaki BDB76B", "darkmagenta 8B008B",
+        "darkolivegreen 556B2F", "darkorange FF8C00", "darkorchid 9932CC",
+        "darkred 8B0000", "darksalmon E9967A", "darkseagreen 8FBC8F",
+        "darkslateblue 483D8B", "darkslategray 2F4F4F", "darkslategrey 2F4F4F",
+        "darkturquoise 00CED1", "darkviolet 9400D3", "deeppink FF1493",
+        "deepskyblue 00BFFF", "dimgray 696969", "dimgrey 696969",
+        "dodgerblue 1E90FF", "firebrick B22222", "floralwhite FFFAF0",
+        "forestgreen 228B22", "fuchsia FF00FF", "gainsboro DCDCDC",
+        "ghostwhite F8F8FF", "gold FFD700", "goldenrod DAA520", "gray 808080",
+        "green 008000", "greenyellow ADFF2F", "grey 808080", "honeydew F0FFF0",
+        "hotpink FF69B4", "indianred CD5C5C", "indigo 4B0082", "ivory FFFFF0",
+        "khaki F0E68C", "lavender E6E6FA", "lavenderblush FFF0F5",
+        "lawngreen 7CFC00", "lemonchiffon FFFACD", "lightblue ADD8E6",
+        "lightcoral F08080", "lightcyan E0FFFF", "lightgoldenrodyellow FAFAD2",
+        "lightgray D3D3D3", "lightgreen 90EE90", "lightgrey D3D3D3",
+        "lightpink FFB6C1", "lightsalmon FFA07A", "lightseagreen 20B2AA",
+        "lightskyblue 87CEFA", "lightslategray 778899", "lightslategrey 778899",
+        "lightsteelblue B0C4DE", "lightyellow FFFFE0", "lime 00FF00",
+        "limegreen 32CD32", "linen FAF0E6", "magenta FF00FF", "maroon 800000",
+        "mediumaquamarine 66CDAA", "mediumblue 0000CD", "mediumorchid BA55D3",
+        "mediumpurple 9370DB", "mediumseagreen 3CB371",
+        "mediumslateblue 7B68EE", "mediumspringgreen 00FA9A",
+        "mediumturquoise 48D1CC", "mediumvioletred C71585",
+        "midnightblue 191970", "mintcream F5FFFA", "mistyrose FFE4E1",
+        "moccasin FFE4B5", "navajowhite FFDEAD", "navy 000080",
+        "oldlace FDF5E6", "olive 808000", "olivedrab 6B8E23", "orange FFA500",
+        "orangered FF4500", "orchid DA70D6", "palegoldenrod EEE8AA",
+        "palegreen 98FB98", "paleturquoise AFEEEE", "palevioletred DB7093",
+        "papayawhip FFEFD5", "peachpuff FFDAB9", "peru CD853F", "pink FFC0CB",
+        "plum DDA0DD", "powderblue B0E0E6", "purple 800080",
+        "rebeccapurple 663399", "red FF0000", "rosybrown BC8F8F",
+        "royalblue 4169E1", "saddlebrown 8B4513", "salmon FA8072",
+        "sandybrown F4A460", "seagreen 2E8B57", "seashell FFF5EE",
+        "sienna A0522D", "silver C0C0C0", "skyblue 87CEEB", "slateblue 6A5ACD",
+        "slategray 708090", "slategrey 708090", "snow FFFAFA",
+        "springgreen 00FF7F", "steelblue 4682B4", "tan D2B48C", "teal 008080",
+        "thistle D8BFD8", "tomato FF6347", "turquoise 40E0D0", "violet EE82EE",
+        "wheat F5DEB3", "white FFFFFF", "whitesmoke F5F5F5", "yellow FFFF00",
+        "yellowgreen 9ACD32"
+    };
+
+    private static final String[] FUNCTIONS = {
+        "rgb", "rgba", "hsl", "hsla", "hwb",
+        "lab", "lch", "oklab", "oklch", "color"
+    };
+    private static final int RGB = 0;
+    private static final int RGBA = 1;
+    private static final int HSL = 2;
+    private static final int HSLA = 3;
+    private static final int HWB = 4;
+    private static final int LAB = 5;
+    private static final int LCH = 6;
+    private static final int OKLAB = 7;
+    private static final int OKLCH = 8;
+    private static final int COLOR = 9;
+
+    private static final String[] SPACES = {
+        "srgb", "srgb-linear", "display-p3", "xyz", "xyz-d65", "xyz-d50"
+    };
+    private static final int SRGB = 0;
+    private static final int SRGB_LINEAR = 1;
+    private static final int DISPLAY_P3 = 2;
+    private static final int XYZ = 3;
+    private static final int XYZ_D65 = 4;
+    private static final int XYZ_D50 = 5;
+
+    /* units of a parsed value, angles are converted to degrees */
+    private static final int NUMBER = 0;
+    private static final int PERCENT = 1;
+    private static final int ANGLE = 2;
+    private static final int NONE = 3;
+
+    /* open addressing table of name hash -> index + 1 into NAMED */
+    private static final int[] TABLE = new int[512];
+    private static final String[] NAMES = new String[NAMED.length];
+    private static final int[] NAMED_RGB = new int[NAMED.length];
+
+    static {
+        for (int i = 0; i < NAMED.length; i++) {
+            String entry = NAMED[i];
+            int space = entry.indexOf(' ');
+            NAMES[i] = entry.substring(0, space);
+            NAMED_RGB[i] = Integer.parseInt(entry.substring(space + 1), 16);
+            int slot = CssColorParser.hash(NAMES[i], 0, space) &
+                       (TABLE.length - 1);
+            while (TABLE[slot] != 0)
+                slot = (slot + 1) & (TABLE.length - 1);
+            TABLE[slot] = i + 1;
+        }
+    }
+
+    private final double[] values = new double[4];
+    private final int[] units = new int[4];
+    private final double[] rgb = new double[3];
+
+    private CharSequence text;
+    private int position;
+    private int end;
+
+    /* returns the color as argb, or -1 if the text is not a color */
+    long parse(CharSequence text) {
+        return this.parse(text, 0, text.length());
+    }
+
+    long parse(CharSequence text, int start, int end) {
+
+        while (start < end && Character.isWhitespace(text.charAt(start)))
+            start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+        if (start == end)
+            return -1;
+
+        this.text = text;
+        this.position = start;
+        this.end = end;
+        long argb;
+        if (text.charAt(start) == '#')
+            argb = this.parseHex();
+        else
+            argb = this.parseKeywordOrFunction();
+        this.text = null;
+        return argb;
+    }
+
+    /* parses a block of colors separated by whitespace, commas or
+     * semicolons, passes each to the sink and returns the number of
+     * pieces that are not colors */
+    int parseAll(CharSequence text, IntConsumer sink) {
+
+        int rejected = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (CssColorParser.isSeparator(text.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            /* separators inside a function belong to it */
+            int start = i;
+            int depth = 0;
+            for (; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '(')
+                    depth++;
+                else if (c == ')' && depth > 0)
+                    depth--;
+                else if (depth == 0 && CssColorParser.isSeparator(c))
+                    break;
+            }
+
+            long argb = this.parse(text, start, i);
+            if (argb < 0)
+                rejected++;
+            else
+                sink.accept((int)argb);
+        }
+        return rejected;
+    }
+
+    private static long clip(double r, double g, double b, double a) {
+
+        /* NaN fails both comparisons and ends up as zero */
+        r = r > 0 ? (r < 1 ? r : 1) : 0;
+        g = g > 0 ? (g < 1 ? g : 1) : 0;
+        b = b > 0 ? (b < 1 ? b : 1) : 0;
+        a = a > 0 ? (a < 1 ? a : 1) : 0;
+        return ColorMath.argb(r, g, b, a) & 0xFFFFFFFFL;
+    }
+
+    private static long clipLinear(double r, double g, double b, double a) {
+
+        return CssColorParser.clip(
+            ColorMath.toGamma(Math.max(0, r)),
+            ColorMath.toGamma(Math.max(0, g)),
+            ColorMath.toGamma(Math.max(0, b)),
+            a
+        );
+    }
+
+    /* case insensitive, only ASCII letters, digits and dashes */
+    private static int hash(CharSequence text, int start, int end) {
+
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(text.charAt(i));
+        }
+        return h ^ h >>> 16;
+    }
+
+    private static double hslChannel(int n, double h, double s, double l) {
+
+        double k = (n + h / 30) % 12;
+        double a = s * Math.min(l, 1 - l);
+        return l - a * Math.max(-1, Math.min(Math.min(k - 3, 9 - k), 1));
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';' || Character.isWhitespace(c);
+    }
+
+    private static boolean isWordCharacter(char c) {
+
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') ||
+               (c >= '0' && c <= '9') || c == '-';
+    }
+
+    /* Lab relative to D50 -> linear sRGB via XYZ and Bradford */
+    private static void labToLinear(
+            double l, double a, double b, double[] rgb) {
+
+        double fy = (l + 16) / 116;
+        double fx = fy + a / 500;
+        double fz = fy - b / 200;
+        double x = CssColorParser.labInverse(fx) * (0.3457 / 0.3585);
+        double y = l > 8 ? fy * fy * fy : l * 27 / 24389;
+        double z = CssColorParser.labInverse(fz) * (0.2958 / 0.3585);
+        CssColorParser.xyzD50ToLinear(x, y, z, rgb);
+    }
+
+    private static double labInverse(double t) {
+
+        double t3 = t * t * t;
+        if (t3 > 216.0 / 24389.0)
+            return t3;
+        return (116 * t - 16) * 27 / 24389;
+    }
+
+    private static boolean matches(
+            CharSequence text, int start, int end, String name) {
+
+        if (end - start != name.length())
+            return false;
+        for (int i = start; i < end; i++) {
+            if (Character.toLowerCase(text.charAt(i)) !=
+                    name.charAt(i - start))
+                return false;
+        }
+        return true;
+    }
+
+    private static void xyzD50ToLinear(
+            double x, double y, double z, double[] rgb) {
+
+        CssColorParser.xyzToLinear(
+            0.9554734527042182 * x - 0.0230985368742614 * y +
+            0.0632593086610217 * z,
+            -0.0283697069632081 * x + 1.0099954580058226 * y +
+            0.0210413989669430 * z,
+            0.0123140016883199 * x - 0.0205076964334779 * y +
+            1.3303659366080753 * z,
+            rgb
+        );
+    }
+
+    private static void xyzToLinear(
+            double x, double y, double z, double[] rgb) {
+
+        rgb[0] = 3.2404542 * x - 1.5371385 * y - 0.4985314 * z;
+        rgb[1] = -0.9692660 * x + 1.8760108 * y + 0.0415560 * z;
+        rgb[2] = 0.0556434 * x - 0.2040259 * y + 1.0572252 * z;
+    }
+
+    /* the parsed values of a function to argb, -1 for invalid units */
+    private long convert(int function, int space, double alpha) {
+
+        double[] v = this.values;
+        int[] u = this.units;
+        double[] rgb = this.rgb;
+        switch (function) {
+        case RGB:
+        case RGBA:
+            for (int i = 0; i < 3; i++) {
+                if (u[i] == ANGLE)
+                    return -1;
+                v[i] /= u[i] == PERCENT ? 100 : 255;
+            }
+            return CssColorParser.clip(v[0], v[1], v[2], alpha);
+        case HSL:
+        case HSLA:
+        case HWB:
+            if (u[0] == PERCENT || u[1] == ANGLE || u[2] == ANGLE)
+                return -1;
+            double h = v[0] % 360;
+            if (h < 0)
+                h += 360;
+            double p = v[1] / 100;
+            double q = v[2] / 100;
+            if (function != HWB) {
+                return CssColorParser.clip(
+                    CssColorParser.hslChannel(0, h, p, q),
+                    CssColorParser.hslChannel(8, h, p, q),
+                    CssColorParser.hslChannel(4, h, p, q),
+                    alpha
+                );
+            }
+            if (p + q >= 1) {
+                double gray = p / (p + q);
+                return CssColorParser.clip(gray, gray, gray, alpha);
+            }
+            return CssColorParser.clip(
+                CssColorParser.hslChannel(0, h, 1, 0.5) * (1 - p - q) + p,
+                CssColorParser.hslChannel(8, h, 1, 0.5) * (1 - p - q) + p,
+                CssColorParser.hslChannel(4, h, 1, 0.5) * (1 - p - q) + p,
+                alpha
+            );
+        case LAB:
+        case LCH:
+        case OKLAB:
+        case OKLCH:
+            boolean ok = function == OKLAB || function == OKLCH;
+            boolean polar = function == LCH || function == OKLCH;
+            if (u[0] == ANGLE || u[1] == ANGLE || (!polar && u[2] == ANGLE))
+                return -1;
+            if (polar && u[2] == PERCENT)
+                return -1;
+
+            /* percentages refer to the reference ranges of each space */
+            double l = v[0];
+            if (u[0] == PERCENT)
+                l = ok ? l / 100 : l;
+            double range = ok ? 0.4 : (polar ? 150 : 125);
+            double a = u[1] == PERCENT ? v[1] * range / 100 : v[1];
+            double b = u[2] == PERCENT ? v[2] * range / 100 : v[2];
+            if (polar) {
+                double hue = Math.toRadians(b);
+                b = a * Math.sin(hue);
+                a = a * Math.cos(hue);
+            }
+            if (ok)
+                ColorMath.oklabToLinear(l, a, b, rgb);
+            else
+                CssColorParser.labToLinear(l, a, b, rgb);
+            return CssColorParser.clipLinear(rgb[0], rgb[1], rgb[2], alpha);
+        default:
+            for (int i = 0; i < 3; i++) {
+                if (u[i] == ANGLE)
+                    return -1;
+                if (u[i] == PERCENT)
+                    v[i] /= 100;
+            }
+            switch (space) {
+            case SRGB:
+                return CssColorParser.clip(v[0], v[1], v[2], alpha);
+            case SRGB_LINEAR:
+                return CssColorParser.clipLinear(v[0], v[1], v[2], alpha);
+            case DISPLAY_P3:
+                double r = ColorMath.toLinear(v[0]);
+                double g = ColorMath.toLinear(v[1]);
+                double bl = ColorMath.toLinear(v[2]);
+                return CssColorParser.clipLinear(
+                    1.2249401 * r - 0.2249404 * g,
+                    -0.0420569 * r + 1.0420571 * g,
+                    -0.0196376 * r - 0.0786361 * g + 1.0982735 * bl,
+                    alpha
+                );
+            case XYZ_D50:
+                CssColorParser.xyzD50ToLinear(v[0], v[1], v[2], rgb);
+                return CssColorParser.clipLinear(
+                    rgb[0], rgb[1], rgb[2], alpha
+                );
+            default:
+                CssColorParser.xyzToLinear(v[0], v[1], v[2], rgb);
+                return CssColorParser.clipLinear(
+                    rgb[0], rgb[1], rgb[2], alpha
+                );
+            }
+        }
+    }
+
+    private int find(String[] names, int start, int end) {
+
+        for (int i = 0; i < names.length; i++) {
+            if (CssColorParser.matches(this.text, start, end, names[i]))
+                return i;
+        }
+        return -1;
+    }
+
+    private long parseFunction(int function, int space) {
+
+        /* values separated by spaces with an optional / alpha, or by
+         * commas with an optional fourth alpha */
+        int n = 0;
+        boolean commas = false;
+        boolean slash = false;
+        while (true) {
+            this.skipWhitespace();
+            if (this.position == this.end)
+                return -1;
+            char c = this.text.charAt(this.position);
+            if (c == ')')
+                break;
+            if (n > 0 && c == ',') {
+                if (n == 1)
+                    commas = true;
+                else if (!commas)
+                    return -1;
+                this.position++;
+                this.skipWhitespace();
+            } else if (n > 0 && commas) {
+                return -1;
+            } else if (c == '/') {
+                if (commas || n != 3)
+                    return -1;
+                slash = true;
+                this.position++;
+                this.skipWhitespace();
+            }
+            if (n == 4 || !this.parseValue(n))
+                return -1;
+            n++;
+        }
+        this.position++;
+        if (this.position != this.end || n < 3)
+            return -1;
+        if (n == 4 && !commas && !slash)
+            return -1;
+
+        double alpha = 1;
+        if (n == 4) {
+            alpha = this.values[3];
+            if (this.units[3] == PERCENT)
+                alpha /= 100;
+            else if (this.units[3] == ANGLE)
+                return -1;
+        }
+        return this.convert(function, space, alpha);
+    }
+
+    /* #RGB, #RGBA, #RRGGBB and #RRGGBBAA */
+    private long parseHex() {
+
+        int length = this.end - this.position - 1;
+        if (length != 3 && length != 4 && length != 6 && length != 8)
+            return -1;
+
+        long value = 0;
+        for (int i = this.position + 1; i < this.end; i++) {
+            int digit = Character.digit(this.text.charAt(i), 16);
+            if (digit < 0)
+                return -1;
+            value = value << 4 | digit;
+            if (length < 6)
+                value = value << 4 | digit;
+        }
+        if (length == 4 || length == 8)
+            return (value & 0xFF) << 24 | value >>> 8;
+        return 0xFF000000L | value;
+    }
+
+    private long parseKeywordOrFunction() {
+
+        int start = this.position;
+        while (this.position < this.end &&
+                CssColorParser.isWordCharacter(
+                    this.text.charAt(this.position)))
+            this.position++;
+        int wordEnd = this.position;
+        if (wordEnd == start)
+            return -1;
+
+        if (wordEnd == this.end) {
+            if (CssColorParser.matches(this.text, start, wordEnd,
+                                       "transparent"))
+                return 0;
+            int h = CssColorParser.hash(this.text, start, wordEnd);
+            int slot = h & (TABLE.length - 1);
+            while (TABLE[slot] != 0) {
+                int i = TABLE[slot] - 1;
+                if (CssColorParser.matches(this.text, start, wordEnd,
+                                           NAMES[i]))
+                    return 0xFF000000L | NAMED_RGB[i];
+                slot = (slot + 1) & (TABLE.length - 1);
+            }
+            return -1;
+        }
+
+        if (this.text.charAt(wordEnd) != '(')
+            return -1;
+        int function = this.find(FUNCTIONS, start, wordEnd);
+        if (function < 0)
+            return -1;
+        this.position++;
+
+        int space = -1;
+        if (function == COLOR) {
+            this.skipWhitespace();
+            int spaceStart = this.position;
+            while (this.position < this.end &&
+                    CssColorParser.isWordCharacter(
+                        this.text.charAt(this.position)))
+                this.position++;
+            space = this.find(SPACES, spaceStart, this.position);
+            if (space < 0)
+                return -1;
+        }
+        return this.parseFunction(function, space);
+    }
+
+    /* a number with an optional unit or none into values[i] and units[i] */
+    private boolean parseValue(int i) {
+
+        CharSequence text = this.text;
+        int start = this.position;
+        while (this.position < this.end &&
+                Character.isLetter(text.charAt(this.position)))
+            this.position++;
+        if (this.position > start) {
+            if (!CssColorParser.matches(text, start, this.position, "none"))
+                return false;
+            this.values[i] = 0;
+            this.units[i] = NONE;
+            return true;
+        }
+
+        /* sign, digits, fraction and exponent without going through a
+         * string, digits beyond 18 only scale */
+        boolean negative = false;
+        char c = this.peek();
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            this.position++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; this.position < this.end; this.position++) {
+            c = text.charAt(this.position);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (mantissa < 100000000000000000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction)
+                        exponent--;
+                } else if (!fraction) {
+                    exponent++;
+                }
+                digits++;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0)
+            return false;
+        c = this.peek();
+        if ((c == 'e' || c == 'E') && this.position + 1 < this.end) {
+            int mark = this.position++;
+            boolean negativeExponent = false;
+            c = this.peek();
+            if (c == '+' || c == '-') {
+                negativeExponent = c == '-';
+                this.position++;
+            }
+            int e = 0;
+            int start2 = this.position;
+            while (this.position < this.end &&
+                    (c = text.charAt(this.position)) >= '0' && c <= '9') {
+                e = Math.min(e * 10 + (c - '0'), 1000);
+                this.position++;
+            }
+            if (this.position == start2)
+                this.position = mark;
+            else
+                exponent += negativeExponent ? -e : e;
+        }
+        double value = exponent == 0 ?
+            mantissa : mantissa * Math.pow(10, exponent);
+        if (negative)
+            value = -value;
+
+        start = this.position;
+        if (this.peek() == '%') {
+            this.position++;
+            this.values[i] = value;
+            this.units[i] = PERCENT;
+            return true;
+        }
+        while (this.position < this.end &&
+                Character.isLetter(text.charAt(this.position)))
+            this.position++;
+        if (this.position == start) {
+            this.values[i] = value;
+            this.units[i] = NUMBER;
+            return true;
+        }
+        if (CssColorParser.matches(text, start, this.position, "deg"))
+            this.values[i] = value;
+        else if (CssColorParser.matches(text, start, this.position, "rad"))
+            this.values[i] = Math.toDegrees(value);
+        else if (CssColorParser.matches(text, start, this.position, "grad"))
+            this.values[i] = value * 0.9;
+        else if (CssColorParser.matches(text, start, this.position, "turn"))
+            this.values[i] = value * 360;
+        else
+            return false;
+        this.units[i] = ANGLE;
+        return true;
+    }
+
+    private char peek() {
+
+        if (this.position < this.end)
+            return this.text.charAt(this.position);
+        return 0;
+    }
+
+    private void skipWhitespace() {
+
+        while (this.position < this.end &&
+                Character.isWhitespace(this.text.charAt(this.position)))
+            this.position++;
+    }
+}
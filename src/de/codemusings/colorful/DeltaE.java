@@ -0,0 +1,204 @@
+/* DeltaE.java - Color difference metrics for the match overlay
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+/* Both metrics work on a Lab-like space. OKLab distances are scaled by 100
+ * so that a threshold means roughly the same for either metric, around 2
+ * being a just noticeable difference.
+ */
+public enum DeltaE {
+
+    CIEDE2000 {
+
+        @Override
+        double distance(
+                double l1, double a1, double b1,
+                double l2, double a2, double b2) {
+
+            double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+            double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+            double c7 = Math.pow((c1 + c2) / 2, 7);
+            double g = 0.5 * (1 - Math.sqrt(c7 / (c7 + POW25_7)));
+            double a1p = (1 + g) * a1;
+            double a2p = (1 + g) * a2;
+            double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+            double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+            double h1p = DeltaE.hue(b1, a1p);
+            double h2p = DeltaE.hue(b2, a2p);
+
+            double dLp = l2 - l1;
+            double dCp = c2p - c1p;
+            double dhp = 0;
+            if (c1p * c2p != 0) {
+                dhp = h2p - h1p;
+                if (dhp > 180)
+                    dhp -= 360;
+                else if (dhp < -180)
+                    dhp += 360;
+            }
+            double dHp = 2 * Math.sqrt(c1p * c2p) *
+                         Math.sin(Math.toRadians(dhp / 2));
+
+            double lp = (l1 + l2) / 2;
+            double cp = (c1p + c2p) / 2;
+            double hp = h1p + h2p;
+            if (c1p * c2p != 0) {
+                if (Math.abs(h1p - h2p) <= 180)
+                    hp /= 2;
+                else if (hp < 360)
+                    hp = (hp + 360) / 2;
+                else
+                    hp = (hp - 360) / 2;
+            }
+
+            double t = 1 - 0.17 * Math.cos(Math.toRadians(hp - 30)) +
+                       0.24 * Math.cos(Math.toRadians(2 * hp)) +
+                       0.32 * Math.cos(Math.toRadians(3 * hp + 6)) -
+                       0.20 * Math.cos(Math.toRadians(4 * hp - 63));
+            double theta = 30 * Math.exp(
+                -((hp - 275) / 25) * ((hp - 275) / 25)
+            );
+            double cp7 = Math.pow(cp, 7);
+            double rc = 2 * Math.sqrt(cp7 / (cp7 + POW25_7));
+            double sl = DeltaE.lightnessWeight(lp);
+            double sc = 1 + 0.045 * cp;
+            double sh = 1 + 0.015 * cp * t;
+            double rt = -Math.sin(Math.toRadians(2 * theta)) * rc;
+
+            double dl = dLp / sl;
+            double dc = dCp / sc;
+            double dh = dHp / sh;
+            return Math.sqrt(dl * dl + dc * dc + dh * dh + rt * dc * dh);
+        }
+
+        /* the chroma and hue terms form a positive semi-definite quadratic
+         * form since |RT| <= 2, so the lightness term alone is a bound */
+        @Override
+        boolean toLightness(double r, double g, double b, double[] lab) {
+
+            /* interpolated, the error stays below 0.001 */
+            double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+            double x = Math.min(y, 1.0) * (LIGHTNESS.length - 1);
+            int i = Math.min((int)x, LIGHTNESS.length - 2);
+            double t = x - i;
+            lab[0] = LIGHTNESS[i] + t * (LIGHTNESS[i + 1] - LIGHTNESS[i]);
+            return false;
+        }
+
+        @Override
+        double lowerBound(double l1, double l2) {
+            return Math.abs(l2 - l1) / DeltaE.lightnessWeight((l1 + l2) / 2);
+        }
+
+        @Override
+        void toLab(double r, double g, double b, double[] lab) {
+            ColorMath.linearToLab(r, g, b, lab);
+        }
+    },
+
+    OKLAB {
+
+        @Override
+        double distance(
+                double l1, double a1, double b1,
+                double l2, double a2, double b2) {
+
+            double dl = l2 - l1;
+            double da = a2 - a1;
+            double db = b2 - b1;
+            return Math.sqrt(dl * dl + da * da + db * db);
+        }
+
+        @Override
+        double lowerBound(double l1, double l2) {
+            return Math.abs(l2 - l1);
+        }
+
+        @Override
+        void toLab(double r, double g, double b, double[] lab) {
+            ColorMath.linearToOklab(r, g, b, lab);
+            lab[0] *= 100;
+            lab[1] *= 100;
+            lab[2] *= 100;
+        }
+
+        /* lightness needs all three cone responses, a and b come free */
+        @Override
+        boolean toLightness(double r, double g, double b, double[] lab) {
+            this.toLab(r, g, b, lab);
+            return true;
+        }
+    };
+
+    private static final double POW25_7 = Math.pow(25, 7);
+
+    /* CIE lightness by relative luminance */
+    private static final float[] LIGHTNESS = new float[4097];
+
+    static {
+        double[] lab = new double[3];
+        for (int i = 0; i < LIGHTNESS.length; i++) {
+            double y = i / (double)(LIGHTNESS.length - 1);
+            ColorMath.linearToLab(y, y, y, lab);
+            LIGHTNESS[i] = (float)lab[0];
+        }
+    }
+
+    abstract double distance(
+        double l1, double a1, double b1,
+        double l2, double a2, double b2
+    );
+
+    /* never larger than the distance, used to skip the full formula */
+    abstract double lowerBound(double l1, double l2);
+
+    /* converts linear sRGB */
+    abstract void toLab(double r, double g, double b, double[] lab);
+
+    /* sets lab[0] like toLab, returns true if a and b were set as well */
+    abstract boolean toLightness(double r, double g, double b, double[] lab);
+
+    private static double hue(double b, double a) {
+
+        if (a == 0 && b == 0)
+            return 0;
+        double h = Math.toDegrees(Math.atan2(b, a));
+        return h < 0 ? h + 360 : h;
+    }
+
+    private static double lightnessWeight(double l) {
+        return 1 + 0.015 * (l - 50) * (l - 50) /
+                   Math.sqrt(20 + (l - 50) * (l - 50));
+    }
+}
@@ -0,0 +1,256 @@
+/* DragRecording.java - Mouse drags on the picker controls, recorded for replay
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+
+import javafx.event.EventType;
+
+import javafx.geometry.Point2D;
+
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+
+/* Started with -Dcolorful.record=<file>, Colorful records the presses,
+ * drags, releases and clicks on the SB, hue and opacity pickers and writes
+ * them when the window closes. The DragReplay bench tool plays them back.
+ *
+ * File layout: the magic "CDRG" and a version byte, then per event one byte
+ * holding control << 4 | button << 2 | type, the time since the previous
+ * event in microseconds as an unsigned LEB128 varint and the position in
+ * the control as two shorts in 1/16 pixel.
+ */
+final class DragRecording {
+
+    static final int PRESSED = 0;
+    static final int DRAGGED = 1;
+    static final int RELEASED = 2;
+    static final int CLICKED = 3;
+
+    private static final int MAGIC = 0x43445247;
+    /* version 1 had no button, its bits were 0 for the primary button */
+    private static final int VERSION = 2;
+
+    private static final Class<?>[] CONTROLS = {
+        SBPickerControl.class,
+        HuePickerControl.class,
+        OpacityPickerControl.class
+    };
+    private static final EventType<?>[] TYPES = {
+        MouseEvent.MOUSE_PRESSED,
+        MouseEvent.MOUSE_DRAGGED,
+        MouseEvent.MOUSE_RELEASED,
+        MouseEvent.MOUSE_CLICKED
+    };
+    private static final MouseButton[] BUTTONS = {
+        MouseButton.PRIMARY,
+        MouseButton.SECONDARY,
+        MouseButton.MIDDLE,
+        MouseButton.NONE
+    };
+
+    private byte[] kinds;
+    private long[] times;
+    private short[] xs;
+    private short[] ys;
+    private int size;
+
+    DragRecording() {
+
+        this.kinds = new byte[256];
+        this.times = new long[256];
+        this.xs = new short[256];
+        this.ys = new short[256];
+    }
+
+    static int getControlCount() {
+        return CONTROLS.length;
+    }
+
+    static Class<?> getControlClass(int control) {
+        return CONTROLS[control];
+    }
+
+    static EventType<MouseEvent> getEventType(int type) {
+
+        @SuppressWarnings("unchecked")
+        EventType<MouseEvent> eventType = (EventType<MouseEvent>)TYPES[type];
+        return eventType;
+    }
+
+    static DragRecording read(File file) throws IOException {
+
+        DragRecording recording = new DragRecording();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readByte() : -1;
+            if (version < 1 || version > VERSION)
+                throw new IOException(file + " is not a drag recording");
+
+            long time = 0;
+            int kind;
+            while ((kind = in.read()) >= 0) {
+                long delta = 0;
+                for (int shift = 0;; shift += 7) {
+                    int b = in.readUnsignedByte();
+                    delta |= (long)(b & 0x7F) << shift;
+                    if (b < 0x80)
+                        break;
+                }
+                time += delta;
+                recording.add(
+                    kind >> 4, kind & 0x3, BUTTONS[kind >> 2 & 0x3], time,
+                    in.readShort() / 16.0, in.readShort() / 16.0
+                );
+            }
+        }
+        return recording;
+    }
+
+    void add(int control, int type, MouseButton button, long micros,
+             double x, double y) {
+
+        int b = 0;
+        while (b < BUTTONS.length - 1 && BUTTONS[b] != button)
+            b++;
+
+        if (this.size == this.kinds.length) {
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.times = Arrays.copyOf(this.times, capacity);
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.ys = Arrays.copyOf(this.ys, capacity);
+        }
+        this.kinds[this.size] = (byte)(control << 4 | b << 2 | type);
+        this.times[this.size] = micros;
+        this.xs[this.size] = DragRecording.toFixed(x);
+        this.ys[this.size] = DragRecording.toFixed(y);
+        this.size++;
+    }
+
+    MouseButton getButton(int index) {
+        return BUTTONS[this.kinds[index] >> 2 & 0x3];
+    }
+
+    int getControl(int index) {
+        return this.kinds[index] >> 4;
+    }
+
+    /* microseconds since the first event */
+    long getTime(int index) {
+        return this.times[index] - this.times[0];
+    }
+
+    int getType(int index) {
+        return this.kinds[index] & 0x3;
+    }
+
+    double getX(int index) {
+        return this.xs[index] / 16.0;
+    }
+
+    double getY(int index) {
+        return this.ys[index] / 16.0;
+    }
+
+    /* records the mouse events on the pickers of the scene from now on */
+    void record(Scene scene) {
+
+        scene.addEventFilter(MouseEvent.ANY, (MouseEvent e) -> {
+            int type = TYPES.length - 1;
+            while (type >= 0 && TYPES[type] != e.getEventType())
+                type--;
+            if (type < 0 || !(e.getTarget() instanceof Node))
+                return;
+            for (Node n = (Node)e.getTarget(); n != null; n = n.getParent()) {
+                for (int control = 0; control < CONTROLS.length; control++) {
+                    if (!CONTROLS[control].isInstance(n))
+                        continue;
+                    Point2D p = n.sceneToLocal(e.getSceneX(), e.getSceneY());
+                    this.add(
+                        control, type, e.getButton(),
+                        System.nanoTime() / 1000, p.getX(), p.getY()
+                    );
+                    return;
+                }
+            }
+        });
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void write(File file) throws IOException {
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            long time = this.size > 0 ? this.times[0] : 0;
+            for (int i = 0; i < this.size; i++) {
+                out.writeByte(this.kinds[i]);
+                long delta = this.times[i] - time;
+                time = this.times[i];
+                while (delta >= 0x80) {
+                    out.writeByte((int)(delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                out.writeByte((int)delta);
+                out.writeShort(this.xs[i]);
+                out.writeShort(this.ys[i]);
+            }
+        }
+    }
+
+    private static short toFixed(double value) {
+
+        long fixed = Math.round(value * 16);
+        fixed = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, fixed));
+        return (short)fixed;
+    }
+}
@@ -0,0 +1,234 @@
+/* Gradient.java - A multi-stop gradient with a precomputed color table
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+public class Gradient {
+
+    private final List<Stop> stops;
+    private final int[] table;
+
+    private Interpolation interpolation;
+
+    /* range of table entries that need to be regenerated */
+    private int dirtyStart;
+    private int dirtyEnd;
+
+    private final double[] from = new double[4];
+    private final double[] to = new double[4];
+    private final double[] mixed = new double[4];
+
+    public Gradient(int resolution) {
+
+        this.stops = new ArrayList<>();
+        this.stops.add(new Stop(0.0, Color.BLACK));
+        this.stops.add(new Stop(1.0, Color.WHITE));
+        this.table = new int[resolution];
+        this.interpolation = Interpolation.SRGB;
+        this.markDirty(0, resolution);
+    }
+
+    /* same stops and interpolation at another resolution */
+    public Gradient(Gradient gradient, int resolution) {
+
+        this.stops = new ArrayList<>(gradient.stops);
+        this.table = new int[resolution];
+        this.interpolation = gradient.interpolation;
+        this.markDirty(0, resolution);
+    }
+
+    public int addStop(double offset, Color color) {
+
+        Stop stop = new Stop(offset, color);
+        int index = 0;
+        while (index < this.stops.size() &&
+               this.stops.get(index).getOffset() <= offset)
+            index++;
+        this.stops.add(index, stop);
+        this.markSegment(index);
+        return index;
+    }
+
+    public int getDirtyEnd() {
+        return this.dirtyEnd;
+    }
+
+    public int getDirtyStart() {
+        return this.dirtyStart;
+    }
+
+    public Interpolation getInterpolation() {
+        return this.interpolation;
+    }
+
+    public List<Stop> getStops() {
+        return Collections.unmodifiableList(this.stops);
+    }
+
+    public int[] getTable() {
+
+        if (this.dirtyStart < this.dirtyEnd)
+            this.regenerate(this.dirtyStart, this.dirtyEnd);
+        this.dirtyStart = this.table.length;
+        this.dirtyEnd = 0;
+        return this.table;
+    }
+
+    public int moveStop(int index, double offset) {
+
+        offset = Math.max(0.0, Math.min(1.0, offset));
+        Stop stop = this.stops.get(index);
+        this.markSegment(index);
+        this.stops.remove(index);
+        return this.addStop(offset, stop.getColor());
+    }
+
+    public void removeStop(int index) {
+
+        if (this.stops.size() <= 2)
+            return;
+        this.markSegment(index);
+        this.stops.remove(index);
+    }
+
+    public void setInterpolation(Interpolation interpolation) {
+
+        this.interpolation = interpolation;
+        this.markDirty(0, this.table.length);
+    }
+
+    public void setStopColor(int index, Color color) {
+
+        Stop stop = this.stops.get(index);
+        this.stops.set(index, new Stop(stop.getOffset(), color));
+        this.markSegment(index);
+    }
+
+    public String toCss() {
+
+        StringBuilder css = new StringBuilder("linear-gradient(");
+        if (this.interpolation != Interpolation.SRGB)
+            css.append("in ").append(this.interpolation.getCssName())
+               .append(' ');
+        css.append("to right");
+        for (Stop stop : this.stops) {
+            Color c = stop.getColor();
+            css.append(", ");
+            css.append(ColorMath.toHex(ColorMath.argb(
+                c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()
+            ), c.getOpacity()));
+            css.append(' ');
+            double percent = Math.round(stop.getOffset() * 1000) / 10.0;
+            if (percent == Math.rint(percent))
+                css.append((long)percent);
+            else
+                css.append(String.format(Locale.US, "%.1f", percent));
+            css.append('%');
+        }
+        return css.append(')').toString();
+    }
+
+    /* marks the table entries between the neighbours of a stop */
+    private void markSegment(int index) {
+
+        int n = this.table.length - 1;
+        double start = index > 0 ? this.stops.get(index - 1).getOffset() : 0;
+        double end = index < this.stops.size() - 1
+                   ? this.stops.get(index + 1).getOffset() : 1;
+        this.markDirty(
+            (int)Math.floor(start * n), (int)Math.ceil(end * n) + 1
+        );
+    }
+
+    private void markDirty(int start, int end) {
+
+        this.dirtyStart = Math.max(0, Math.min(this.dirtyStart, start));
+        this.dirtyEnd = Math.min(
+            this.table.length, Math.max(this.dirtyEnd, end)
+        );
+    }
+
+    private void regenerate(int start, int end) {
+
+        int n = this.table.length - 1;
+        Stop first = this.stops.get(0);
+        Stop last = this.stops.get(this.stops.size() - 1);
+
+        int i = start;
+        for (; i < end && i <= first.getOffset() * n; i++)
+            this.table[i] = this.argb(first.getColor());
+
+        for (int s = 0; s < this.stops.size() - 1 && i < end; s++) {
+            Stop a = this.stops.get(s);
+            Stop b = this.stops.get(s + 1);
+            if (i > b.getOffset() * n)
+                continue;
+            this.components(a.getColor(), this.from);
+            this.components(b.getColor(), this.to);
+            double span = b.getOffset() - a.getOffset();
+            for (; i < end && i <= b.getOffset() * n; i++) {
+                double t = span > 0
+                         ? (i / (double)n - a.getOffset()) / span : 1;
+                t = Math.max(0, Math.min(1, t));
+                this.interpolation.interpolate(
+                    this.from, this.to, t, this.mixed
+                );
+                this.table[i] = this.interpolation.toArgb(
+                    this.mixed, this.mixed[3]
+                );
+            }
+        }
+
+        for (; i < end; i++)
+            this.table[i] = this.argb(last.getColor());
+    }
+
+    private int argb(Color c) {
+        return ColorMath.argb(
+            c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()
+        );
+    }
+
+    private void components(Color color, double[] c) {
+        this.interpolation.fromArgb(this.argb(color), c);
+        c[3] = color.getOpacity();
+    }
+}
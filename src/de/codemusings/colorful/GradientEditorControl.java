@@ -0,0 +1,257 @@
+/* GradientEditorControl.java - An editor for multi-stop gradients
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import javafx.geometry.Point2D;
+
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+
+import javafx.scene.image.ImageView;
+
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+public class GradientEditorControl extends Pane {
+
+    private static final int HANDLE_WIDTH = 9;
+    private static final int HANDLE_HEIGHT = 12;
+
+    private final ObjectProperty<Color> colorProperty;
+    private final ObjectProperty<Interpolation> interpolationProperty;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
+
+    private final Gradient gradient;
+    private final PixelBuffer canvas;
+    private final LazyRenderer renderer;
+    private final List<Region> handles;
+    private boolean stale;
+
+    private int dragIndex = -1;
+
+    public GradientEditorControl() {
+        this(380, 40);
+    }
+
+    public GradientEditorControl(double width, double height) {
+
+        super.setMinSize(width, height);
+        super.setMaxSize(width, height);
+
+        this.colorProperty = new SimpleObjectProperty<>(Color.WHITE);
+        this.interpolationProperty = new SimpleObjectProperty<>(
+            Interpolation.SRGB
+        );
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
+
+        int w = (int)width - 2;
+        int h = (int)height - 2 - HANDLE_HEIGHT;
+        this.gradient = new Gradient(w);
+        this.canvas = new PixelBuffer(w, h);
+        this.handles = new ArrayList<>();
+
+        ImageView view = this.canvas.getView();
+        super.getChildren().add(view);
+        view.relocate(1, 1);
+        this.renderer = new LazyRenderer(this, this::updateCanvas, this.canvas);
+
+        /* clicking the preview bar adds a stop with the current color */
+        view.setOnMouseClicked((MouseEvent e) -> {
+            if (e.getButton() != MouseButton.PRIMARY)
+                return;
+            if (!e.isStillSincePress())
+                return;
+            this.gradient.addStop(
+                e.getX() / (w - 1), this.colorProperty.getValue()
+            );
+            this.updateHandles();
+            this.renderer.invalidate();
+        });
+
+        this.interpolationProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.gradient.setInterpolation(newValue);
+                this.renderer.invalidate();
+            }
+        );
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.stale = true;
+                this.renderer.invalidate();
+            }
+        );
+
+        this.updateHandles();
+    }
+
+    public ObjectProperty<Color> colorProperty() {
+        return this.colorProperty;
+    }
+
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
+    public Gradient getGradient() {
+        return this.gradient;
+    }
+
+    public ObjectProperty<Interpolation> interpolationProperty() {
+        return this.interpolationProperty;
+    }
+
+    private Region createHandle() {
+
+        Region handle = new Region();
+        handle.setStyle("-fx-border-color: black;");
+        handle.setMinSize(HANDLE_WIDTH, HANDLE_HEIGHT);
+        handle.setMaxSize(HANDLE_WIDTH, HANDLE_HEIGHT);
+
+        handle.setOnMousePressed((MouseEvent e) -> {
+            if (e.getButton() == MouseButton.PRIMARY)
+                this.dragIndex = this.handles.indexOf(handle);
+        });
+        handle.setOnMouseDragged((MouseEvent e) -> {
+            if (this.dragIndex < 0)
+                return;
+            Point2D p = this.sceneToLocal(e.getSceneX(), e.getSceneY());
+            this.dragIndex = this.gradient.moveStop(
+                this.dragIndex, (p.getX() - 1) / (this.canvas.getWidth() - 1)
+            );
+            this.updateHandles();
+            this.renderer.invalidate();
+        });
+        handle.setOnMouseReleased((MouseEvent e) -> {
+            this.dragIndex = -1;
+        });
+
+        /* double click recolors a stop, secondary click removes it */
+        handle.setOnMouseClicked((MouseEvent e) -> {
+            int index = this.handles.indexOf(handle);
+            if (!e.isStillSincePress() || index < 0)
+                return;
+            if (e.getButton() == MouseButton.PRIMARY &&
+                e.getClickCount() == 2)
+                this.gradient.setStopColor(
+                    index, this.colorProperty.getValue()
+                );
+            else if (e.getButton() == MouseButton.SECONDARY)
+                this.gradient.removeStop(index);
+            this.updateHandles();
+            this.renderer.invalidate();
+        });
+
+        return handle;
+    }
+
+    private void drawColumns(int[] table, int start, int end) {
+
+        int[] pixels = this.canvas.getPixels();
+        int w = this.canvas.getWidth();
+        int h = this.canvas.getHeight();
+
+        /* composite over the same grid used by the color view */
+        for (int x = start; x < end; x++) {
+            int argb = table[x];
+            int dark = ColorMath.composite(argb, 191);
+            int light = ColorMath.composite(argb, 255);
+            for (int y = 0; y < h; y++) {
+                pixels[y * w + x] = x / 3 % 2 == y / 3 % 2 ? dark : light;
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            this.colorVisionProperty.getValue().filter(
+                pixels, y * w + start, end - start
+            );
+        }
+
+        this.canvas.flush(start, 0, end - start, h);
+    }
+
+    /* redraws only the table entries invalidated by the last edit */
+    private void updateCanvas() {
+
+        int start = this.gradient.getDirtyStart();
+        int end = this.gradient.getDirtyEnd();
+        int[] table = this.gradient.getTable();
+        if (this.canvas.allocate() || this.stale) {
+            this.stale = false;
+            this.drawColumns(table, 0, table.length);
+        }
+        else if (start < end)
+            this.drawColumns(table, start, end);
+    }
+
+    private void updateHandles() {
+
+        List<Stop> stops = this.gradient.getStops();
+        while (this.handles.size() < stops.size()) {
+            Region handle = this.createHandle();
+            this.handles.add(handle);
+            super.getChildren().add(handle);
+        }
+        while (this.handles.size() > stops.size()) {
+            super.getChildren().remove(
+                this.handles.remove(this.handles.size() - 1)
+            );
+        }
+
+        double w = this.canvas.getWidth();
+        double y = this.canvas.getHeight() + 1;
+        for (int i = 0; i < stops.size(); i++) {
+            Stop stop = stops.get(i);
+            Region handle = this.handles.get(i);
+            handle.setBackground(new Background(
+                new BackgroundFill(stop.getColor(), null, null)
+            ));
+            handle.relocate(
+                1 + Math.round(stop.getOffset() * (w - 1)) - HANDLE_WIDTH / 2,
+                y
+            );
+        }
+    }
+}
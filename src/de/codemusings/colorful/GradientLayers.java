@@ -0,0 +1,113 @@
+/* GradientLayers.java - Building blocks of the gradient render backend
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
+
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Rectangle;
+
+/* Gradients run between pixel centers so that every row or column gets the
+ * color the pixel backend computes for it.
+ */
+final class GradientLayers {
+
+    private GradientLayers() {
+    }
+
+    static Pane newPane(int w, int h) {
+
+        Pane pane = new Pane();
+        pane.setMinSize(w, h);
+        pane.setMaxSize(w, h);
+        pane.setClip(new Rectangle(w, h));
+        return pane;
+    }
+
+    static Region newRegion(int w, int h) {
+
+        Region region = new Region();
+        region.setMinSize(w, h);
+        region.setMaxSize(w, h);
+        return region;
+    }
+
+    /* the marker drawn next to the selection in the hue and opacity strips */
+    static Polygon newTriangle(int w, boolean left) {
+
+        Polygon triangle = left ?
+            new Polygon(0, -2, 3, 0.5, 0, 3) :
+            new Polygon(w, -2, w - 3, 0.5, w, 3);
+        triangle.setFill(Color.BLACK);
+        triangle.setSmooth(false);
+        return triangle;
+    }
+
+    static LinearGradient horizontal(int w, Stop... stops) {
+        return GradientLayers.horizontal(0.5, w - 0.5, stops);
+    }
+
+    static LinearGradient horizontal(double x0, double x1, Stop... stops) {
+
+        return new LinearGradient(
+            x0, 0, x1, 0, false, CycleMethod.NO_CYCLE, stops
+        );
+    }
+
+    static void setFill(Region region, Paint paint) {
+        region.setBackground(new Background(new BackgroundFill(
+            paint, null, null
+        )));
+    }
+
+    static LinearGradient vertical(int h, Stop... stops) {
+        return GradientLayers.vertical(0.5, h - 0.5, stops);
+    }
+
+    static LinearGradient vertical(double y0, double y1, Stop... stops) {
+
+        return new LinearGradient(
+            0, y0, 0, y1, false, CycleMethod.NO_CYCLE, stops
+        );
+    }
+}
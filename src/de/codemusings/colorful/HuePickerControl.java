@@ -38,21 +38,28 @@ import javafx.beans.property.SimpleObjectProperty;
 
 import javafx.event.EventHandler;
 
-import javafx.scene.input.MouseEvent;
+import javafx.scene.Node;
 
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
+
+import javafx.scene.input.MouseEvent;
 
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
 
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import javafx.scene.shape.Polygon;
 
 public class HuePickerControl extends Pane {
 
     private final ObjectProperty<Double> hueProperty;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
 
-    private final WritableImage canvas;
+    private final Renderer backend;
+    private final LazyRenderer renderer;
 
     public HuePickerControl() {
         this(15, 200);
@@ -64,12 +71,23 @@ public class HuePickerControl extends Pane {
         super.setMaxSize(width, height);
 
         this.hueProperty = new SimpleObjectProperty<>(0.0);
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
 
-        this.canvas = new WritableImage((int)width - 2, (int)height - 2);
-        this.updateCanvas();
-        ImageView view = new ImageView(this.canvas);
+        int w = (int)width - 2;
+        int h = (int)height - 2;
+        if (RenderBackend.get() == RenderBackend.GRADIENT)
+            this.backend = new GradientRenderer(w, h);
+        else
+            this.backend = new PixelRenderer(w, h);
+        Node view = this.backend.getNode();
         super.getChildren().add(view);
         view.relocate(1, 1);
+        this.renderer = new LazyRenderer(
+            this, this.backend::render, this.backend::release,
+            this.backend.getBuffers()
+        );
 
         final HuePickerControl control = this;
         EventHandler<MouseEvent> handler = new EventHandler<MouseEvent>() {
@@ -81,15 +99,12 @@ public class HuePickerControl extends Pane {
 
                 if (e.getY() < 0)
                     y = 0;
-                else if (e.getY() > canvas.getHeight() - 1)
-                    y = canvas.getHeight() - 1;
+                else if (e.getY() > h - 1)
+                    y = h - 1;
                 else
                     y = e.getY();
 
-                double h = y * 360.0 / (control.canvas.getHeight() - 1); 
-                control.hueProperty.setValue(h);
-
-                control.updateCanvas();
+                control.hueProperty.setValue(y * 360.0 / (h - 1.0));
             }
         };
         view.setOnMouseClicked(handler);
@@ -97,61 +112,161 @@ public class HuePickerControl extends Pane {
 
         this.hueProperty.addListener(
             (observable, oldValue, newValue) -> {
-                control.updateCanvas();
+                control.renderer.invalidate();
+            }
+        );
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                control.renderer.invalidate();
             }
         );
     }
 
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
     public ObjectProperty<Double> hueProperty() {
         return this.hueProperty;
     }
 
-    private void updateCanvas() {
+    /* fills the rows [startRow, endRow) of a width * height strip, the hue
+     * runs from 0 at the top to 360 at the bottom */
+    static void paint(
+            int[] pixels, int width, int height, int startRow, int endRow) {
 
-        double w = this.canvas.getWidth();
-        double h = this.canvas.getHeight();
+        for (int y = startRow; y < endRow; y++) {
+            double hue = y * 360.0 / (height - 1);
+            Color c = Color.hsb(hue, 1.0, 1.0);
+            int argb = ColorMath.argb(
+                c.getRed(), c.getGreen(), c.getBlue(), 1.0
+            );
+            int row = (y - startRow) * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = argb;
+            }
+        }
+    }
+
+    /* one stop per primary and secondary, markers as polygons on top */
+    private final class GradientRenderer implements Renderer {
+
+        private final int height;
+        private final Pane pane;
+        private final Region strip;
+        private final Polygon left;
+        private final Polygon right;
+
+        GradientRenderer(int width, int height) {
 
-        PixelWriter writer = this.canvas.getPixelWriter();
-        for (int y = 0; y < h; y++) {
-            double hue = y * 360.0 / (h - 1); 
-            for (int x = 0; x < w; x++) {
-                writer.setColor(x, y, Color.hsb(hue, 1.0, 1.0));
+            this.height = height;
+            this.pane = GradientLayers.newPane(width, height);
+            this.strip = GradientLayers.newRegion(width, height);
+            this.left = GradientLayers.newTriangle(width, true);
+            this.right = GradientLayers.newTriangle(width, false);
+            this.pane.getChildren().addAll(this.strip, this.left, this.right);
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void render() {
+
+            HuePickerControl control = HuePickerControl.this;
+            ColorVision vision = control.colorVisionProperty.getValue();
+
+            Stop[] stops = new Stop[7];
+            for (int i = 0; i < stops.length; i++) {
+                Color c = vision.filter(Color.hsb(i * 60.0, 1.0, 1.0));
+                stops[i] = new Stop(i / 6.0, c);
             }
+            GradientLayers.setFill(
+                this.strip, GradientLayers.vertical(this.height, stops)
+            );
+
+            double hue = control.hueProperty.getValue();
+            int y = (int)Math.round(hue * (this.height - 1) / 360.0);
+            this.left.setLayoutY(y);
+            this.right.setLayoutY(y);
         }
+    }
 
-        double hue = this.hueProperty.getValue();
-        int y = (int)Math.round(hue * (h - 1) / 360.0);
-        int[][] left = {
-            {0, y - 2},
-            {0, y - 1}, {1, y - 1},
-            {0, y},     {1, y},     {2, y},
-            {0, y + 1}, {1, y + 1},
-            {0, y + 2}
-        };
-        int[][] right = {
-            {(int)w - 1, y - 2},
-            {(int)w - 1, y - 1}, {(int)w - 2, y - 1},
-            {(int)w - 1, y},     {(int)w - 2, y},     {(int)w - 3, y},
-            {(int)w - 1, y + 1}, {(int)w - 2, y + 1},
-            {(int)w - 1, y + 2}
-        };
-        for (int i = 0; i < left.length; i++) {
-            if (left[i][0] < 0 || left[i][1] < 0)
-                continue;
-            if (left[i][0] > this.canvas.getWidth() - 1)
-                continue;
-            if (left[i][1] > this.canvas.getHeight() - 1)
-                continue;
-            writer.setColor(left[i][0], left[i][1], Color.BLACK);
+    /* the strip is shared by all pickers of the same size, markers as
+     * polygons on top */
+    private final class PixelRenderer implements Renderer {
+
+        private final int width;
+        private final int height;
+        private final Pane pane;
+        private final ImageView strip;
+        private final Polygon left;
+        private final Polygon right;
+
+        private RenderCache.Key key;
+
+        PixelRenderer(int width, int height) {
+
+            this.width = width;
+            this.height = height;
+            this.pane = GradientLayers.newPane(width, height);
+            this.strip = new ImageView();
+            this.left = GradientLayers.newTriangle(width, true);
+            this.right = GradientLayers.newTriangle(width, false);
+            this.pane.getChildren().addAll(this.strip, this.left, this.right);
         }
-        for (int i = 0; i < left.length; i++) {
-            if (right[i][0] < 0 || right[i][1] < 0)
-                continue;
-            if (right[i][0] > this.canvas.getWidth() - 1)
-                continue;
-            if (right[i][1] > this.canvas.getHeight() - 1)
-                continue;
-            writer.setColor(right[i][0], right[i][1], Color.BLACK);
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void release() {
+
+            if (this.key == null)
+                return;
+            RenderCache.release(this.key);
+            this.key = null;
+            this.strip.setImage(null);
+        }
+
+        @Override
+        public void render() {
+
+            HuePickerControl control = HuePickerControl.this;
+            ColorVision vision = control.colorVisionProperty.getValue();
+            RenderCache.Key key = new RenderCache.Key(
+                HuePickerControl.class, this.width, this.height, vision
+            );
+            if (!key.equals(this.key)) {
+                Image image = RenderCache.acquire(
+                    key, (pixels, w, h) -> {
+                        HuePickerControl.paint(pixels, w, h, 0, h);
+                        vision.filter(pixels, 0, pixels.length);
+                    }
+                );
+                this.release();
+                this.key = key;
+                this.strip.setImage(image);
+            }
+
+            double hue = control.hueProperty.getValue();
+            int y = (int)Math.round(hue * (this.height - 1) / 360.0);
+            this.left.setLayoutY(y);
+            this.right.setLayoutY(y);
         }
     }
 }
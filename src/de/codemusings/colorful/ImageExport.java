@@ -0,0 +1,214 @@
+/* ImageExport.java - Renders pickers and gradients at any size
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/* Exports the SB plane, the hue strip and gradients as PNG images of up
+ * to 65536 pixels a side. Rows are rendered in strips by the same code
+ * the pickers draw with, on a pool of threads, and streamed into the file
+ * in order. Only a bounded number of strips is in flight, so memory use
+ * depends on the width of the image but not on its height.
+ */
+final class ImageExport {
+
+    static final int MIN_SIZE = 2;
+    static final int MAX_SIZE = 1 << 16;
+
+    /* pixels per strip */
+    private static final int STRIP_PIXELS = 1 << 18;
+
+    /* fills rows [startRow, endRow) of a width * height image into the
+     * start of pixels, called from several threads at once */
+    interface Source {
+        void render(
+            int[] pixels, int width, int height, int startRow, int endRow
+        );
+    }
+
+    private ImageExport() {
+    }
+
+    static void export(Source source, int width, int height, Path path)
+        throws IOException
+    {
+        if (width < MIN_SIZE || width > MAX_SIZE ||
+                height < MIN_SIZE || height > MAX_SIZE)
+            throw new IllegalArgumentException(
+                "image size out of range: " + width + "x" + height
+            );
+
+        int rows = Math.max(1, Math.min(height, STRIP_PIXELS / width));
+        int strips = (height + rows - 1) / rows;
+        int threads = Math.min(
+            strips, Runtime.getRuntime().availableProcessors()
+        );
+
+        /* one pixel buffer and encoder per thread, with room for the row
+         * above each strip that its first row is filtered against */
+        BlockingQueue<Worker> workers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++)
+            workers.add(new Worker(width, rows));
+        ExecutorService executor = Executors.newFixedThreadPool(
+            threads,
+            (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Colorful Export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+
+        try (PngStripWriter writer = new PngStripWriter(path, width, height)) {
+            ArrayDeque<Future<PngStripWriter.Strip>> pending =
+                new ArrayDeque<>();
+            for (int s = 0; s < strips; s++) {
+                if (pending.size() == 2 * threads)
+                    writer.write(take(pending.poll()));
+                int start = s * rows;
+                int end = Math.min(height, start + rows);
+                pending.add(executor.submit(() -> {
+                    Worker worker = workers.take();
+                    try {
+                        return worker.encode(
+                            source, width, height, start, end, end == height
+                        );
+                    } finally {
+                        workers.add(worker);
+                    }
+                }));
+            }
+            while (!pending.isEmpty())
+                writer.write(take(pending.poll()));
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+            /* encoders still busy after a failure are left to the GC */
+            List<Worker> idle = new ArrayList<>();
+            workers.drainTo(idle);
+            for (Worker worker : idle)
+                worker.encoder.end();
+        }
+    }
+
+    /* horizontal, with the transparency of the stops kept */
+    static Source gradient(Gradient gradient, int width, ColorVision vision) {
+
+        int[] table = new Gradient(gradient, width).getTable();
+        vision.filter(table, 0, table.length);
+        return (pixels, w, h, startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                System.arraycopy(table, 0, pixels, (y - startRow) * w, w);
+            }
+        };
+    }
+
+    static Source hueStrip(ColorVision vision) {
+
+        return (pixels, w, h, startRow, endRow) -> {
+            HuePickerControl.paint(pixels, w, h, startRow, endRow);
+            vision.filter(pixels, 0, w * (endRow - startRow));
+        };
+    }
+
+    static Source sbPlane(double hue, ColorVision vision) {
+
+        return (pixels, w, h, startRow, endRow) -> {
+            SBCompositor.compose(
+                hue, pixels, 0, w, w, endRow - startRow,
+                0, 1.0 / (w - 1), 1 - startRow / (h - 1.0), 1.0 / (h - 1)
+            );
+            vision.filter(pixels, 0, w * (endRow - startRow));
+        };
+    }
+
+    private static PngStripWriter.Strip take(
+            Future<PngStripWriter.Strip> strip) throws IOException {
+
+        try {
+            return strip.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("export interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Worker {
+
+        private final int[] pixels;
+        private final PngStripWriter.Encoder encoder;
+
+        Worker(int width, int rows) {
+            this.pixels = new int[width * (rows + 1)];
+            this.encoder = new PngStripWriter.Encoder(
+                width, Deflater.DEFAULT_COMPRESSION
+            );
+        }
+
+        PngStripWriter.Strip encode(
+                Source source, int width, int height, int start, int end,
+                boolean last) {
+
+            int context = start > 0 ? 1 : 0;
+            source.render(this.pixels, width, height, start - context, end);
+            return this.encoder.encode(
+                this.pixels, context, end - start, last
+            );
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/* Interpolation.java - Color spaces used to interpolate gradients
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+public enum Interpolation {
+
+    SRGB("sRGB", "srgb") {
+
+        @Override
+        void fromArgb(int argb, double[] c) {
+            c[0] = ((argb >> 16) & 0xFF) / 255.0;
+            c[1] = ((argb >> 8) & 0xFF) / 255.0;
+            c[2] = (argb & 0xFF) / 255.0;
+        }
+
+        @Override
+        int toArgb(double[] c, double alpha) {
+            return ColorMath.argb(
+                clamp(c[0]), clamp(c[1]), clamp(c[2]), alpha
+            );
+        }
+    },
+
+    LINEAR_RGB("Linear RGB", "srgb-linear") {
+
+        @Override
+        void fromArgb(int argb, double[] c) {
+            c[0] = ColorMath.decode((argb >> 16) & 0xFF);
+            c[1] = ColorMath.decode((argb >> 8) & 0xFF);
+            c[2] = ColorMath.decode(argb & 0xFF);
+        }
+
+        @Override
+        int toArgb(double[] c, double alpha) {
+            return ColorMath.argb(
+                ColorMath.toGamma(clamp(c[0])),
+                ColorMath.toGamma(clamp(c[1])),
+                ColorMath.toGamma(clamp(c[2])),
+                alpha
+            );
+        }
+    },
+
+    OKLAB("OKLab", "oklab") {
+
+        @Override
+        void fromArgb(int argb, double[] c) {
+            LINEAR_RGB.fromArgb(argb, c);
+            ColorMath.linearToOklab(c[0], c[1], c[2], c);
+        }
+
+        @Override
+        int toArgb(double[] c, double alpha) {
+            ColorMath.oklabToLinear(c[0], c[1], c[2], c);
+            return LINEAR_RGB.toArgb(c, alpha);
+        }
+    },
+
+    OKLCH("OKLCH", "oklch") {
+
+        @Override
+        void fromArgb(int argb, double[] c) {
+            OKLAB.fromArgb(argb, c);
+            double chroma = Math.sqrt(c[1] * c[1] + c[2] * c[2]);
+            double hue = Math.toDegrees(Math.atan2(c[2], c[1]));
+            c[1] = chroma;
+            c[2] = chroma < ACHROMATIC ? Double.NaN : (hue + 360) % 360;
+        }
+
+        @Override
+        int toArgb(double[] c, double alpha) {
+            double hue = Double.isNaN(c[2]) ? 0 : Math.toRadians(c[2]);
+            double chroma = c[1];
+            c[1] = chroma * Math.cos(hue);
+            c[2] = chroma * Math.sin(hue);
+            return OKLAB.toArgb(c, alpha);
+        }
+
+        @Override
+        void interpolate(double[] a, double[] b, double t, double[] c) {
+
+            /* hue is not premultiplied and follows the shorter arc */
+            double ha = a[2], hb = b[2];
+            if (Double.isNaN(ha))
+                ha = hb;
+            if (Double.isNaN(hb))
+                hb = ha;
+            if (!Double.isNaN(ha)) {
+                if (hb - ha > 180)
+                    ha += 360;
+                else if (ha - hb > 180)
+                    hb += 360;
+            }
+            super.interpolate(a, b, t, c);
+            c[2] = Double.isNaN(ha) ? Double.NaN : (ha + (hb - ha) * t) % 360;
+        }
+    };
+
+    private static final double ACHROMATIC = 1e-4;
+
+    private final String label;
+    private final String cssName;
+
+    private Interpolation(String label, String cssName) {
+        this.label = label;
+        this.cssName = cssName;
+    }
+
+    public String getCssName() {
+        return this.cssName;
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+
+    /* converts a packed color into the components of this space */
+    abstract void fromArgb(int argb, double[] c);
+
+    /* converts components of this space back, the array is clobbered */
+    abstract int toArgb(double[] c, double alpha);
+
+    /* premultiplied interpolation of the color components */
+    void interpolate(double[] a, double[] b, double t, double[] c) {
+
+        double alpha = a[3] + (b[3] - a[3]) * t;
+        for (int i = 0; i < 3; i++) {
+            double pa = a[i] * a[3];
+            double pb = b[i] * b[3];
+            c[i] = alpha == 0 ? 0 : (pa + (pb - pa) * t) / alpha;
+        }
+        c[3] = alpha;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+}
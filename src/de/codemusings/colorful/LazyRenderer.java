@@ -0,0 +1,170 @@
+/* LazyRenderer.java - Defers rendering of controls that are not showing
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.animation.PauseTransition;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import javafx.util.Duration;
+
+/* Renders a control immediately while it is showing and only marks it
+ * dirty otherwise. A control counts as showing if it is attached to a
+ * showing, non-iconified window and it and all its ancestors are visible.
+ * Buffers of controls hidden for longer than colorful.releaseDelay
+ * milliseconds are released and rebuilt on the next show.
+ */
+final class LazyRenderer {
+
+    private static final Duration RELEASE_DELAY = Duration.millis(
+        Long.getLong("colorful.releaseDelay", 10000)
+    );
+
+    private final Node node;
+    private final Runnable render;
+    private final Runnable release;
+    private final PixelBuffer[] buffers;
+
+    private final InvalidationListener listener;
+    private final List<Observable> observed;
+    private final PauseTransition releaseTimer;
+
+    private boolean dirty;
+    private boolean showing;
+
+    LazyRenderer(Node node, Runnable render, PixelBuffer... buffers) {
+        this(node, render, () -> { }, buffers);
+    }
+
+    LazyRenderer(Node node, Runnable render, Runnable release,
+                 PixelBuffer... buffers) {
+
+        this.node = node;
+        this.render = render;
+        this.release = release;
+        this.buffers = buffers;
+        this.listener = observable -> this.update();
+        this.observed = new ArrayList<>();
+        this.releaseTimer = new PauseTransition(RELEASE_DELAY);
+        this.releaseTimer.setOnFinished(e -> this.release());
+        this.dirty = true;
+
+        for (PixelBuffer buffer : this.buffers)
+            buffer.setHidden(true);
+        this.update();
+    }
+
+    void invalidate() {
+
+        this.dirty = true;
+        if (this.showing)
+            this.render();
+    }
+
+    private void observe(Observable observable) {
+        observable.addListener(this.listener);
+        this.observed.add(observable);
+    }
+
+    private void release() {
+
+        if (this.showing)
+            return;
+        for (PixelBuffer buffer : this.buffers)
+            buffer.release();
+        this.release.run();
+        this.dirty = true;
+    }
+
+    private void render() {
+
+        this.dirty = false;
+        this.render.run();
+    }
+
+    private void update() {
+
+        /* the ancestor chain may have changed, observe it again */
+        for (Observable observable : this.observed)
+            observable.removeListener(this.listener);
+        this.observed.clear();
+
+        boolean visible = true;
+        for (Node n = this.node; n != null; n = n.getParent()) {
+            this.observe(n.visibleProperty());
+            this.observe(n.parentProperty());
+            visible &= n.isVisible();
+        }
+        this.observe(this.node.sceneProperty());
+
+        Scene scene = this.node.getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (scene != null)
+            this.observe(scene.windowProperty());
+        if (window != null)
+            this.observe(window.showingProperty());
+        if (window instanceof Stage)
+            this.observe(((Stage)window).iconifiedProperty());
+
+        boolean showing = visible && window != null && window.isShowing() &&
+            !(window instanceof Stage && ((Stage)window).isIconified());
+        if (showing == this.showing)
+            return;
+
+        this.showing = showing;
+        for (PixelBuffer buffer : this.buffers)
+            buffer.setHidden(!showing);
+
+        if (showing) {
+            this.releaseTimer.stop();
+            boolean released = false;
+            for (PixelBuffer buffer : this.buffers)
+                released |= !buffer.isAllocated();
+            if (this.dirty || released)
+                this.render();
+        } else {
+            this.releaseTimer.playFromStart();
+        }
+    }
+}
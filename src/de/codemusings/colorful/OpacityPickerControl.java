@@ -40,17 +40,20 @@ import javafx.beans.value.ChangeListener;
 
 import javafx.event.EventHandler;
 
+import javafx.scene.Group;
+import javafx.scene.Node;
+
 import javafx.scene.effect.BlendMode;
 
 import javafx.scene.input.MouseEvent;
 
-import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
 
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import javafx.scene.shape.Polygon;
 
 public class OpacityPickerControl extends Pane {
 
@@ -58,9 +61,10 @@ public class OpacityPickerControl extends Pane {
     private final ObjectProperty<Double> saturationProperty;
     private final ObjectProperty<Double> brightnessProperty;
     private final ObjectProperty<Double> opacityProperty;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
 
-    private final WritableImage background;
-    private final WritableImage canvas;
+    private final Renderer backend;
+    private final LazyRenderer renderer;
 
     public OpacityPickerControl() {
         this(15, 200);
@@ -76,18 +80,22 @@ public class OpacityPickerControl extends Pane {
         this.saturationProperty = new SimpleObjectProperty<>(0.0);
         this.brightnessProperty = new SimpleObjectProperty<>(1.0);
         this.opacityProperty = new SimpleObjectProperty<>(1.0);
-
-        this.background = new WritableImage((int)width - 2, (int)height - 2);
-        this.drawBackground();
-        ImageView view = new ImageView(this.background);
-        super.getChildren().add(view);
-        view.relocate(1, 1);
-
-        this.canvas = new WritableImage((int)width - 2, (int)height - 2);
-        this.updateCanvas();
-        view = new ImageView(this.canvas);
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
+
+        int w = (int)width - 2;
+        int h = (int)height - 2;
+        if (RenderBackend.get() == RenderBackend.GRADIENT)
+            this.backend = new GradientRenderer(w, h);
+        else
+            this.backend = new PixelRenderer(w, h);
+        Node view = this.backend.getNode();
         super.getChildren().add(view);
         view.relocate(1, 1);
+        this.renderer = new LazyRenderer(
+            this, this.backend::render, this.backend.getBuffers()
+        );
 
         final OpacityPickerControl control = this;
         EventHandler<MouseEvent> handler = new EventHandler<MouseEvent>() {
@@ -99,51 +107,39 @@ public class OpacityPickerControl extends Pane {
 
                 if (e.getY() < 0)
                     y = 0;
-                else if (e.getY() > canvas.getHeight() - 1)
-                    y = canvas.getHeight() - 1;
+                else if (e.getY() > h - 1)
+                    y = h - 1;
                 else
                     y = e.getY();
 
-                double h = canvas.getHeight();
                 control.opacityProperty.setValue((h - 1 - y) / (h - 1));
-
-                control.updateCanvas();
             }
         };
         view.setOnMouseClicked(handler);
         view.setOnMouseDragged(handler);
 
         ChangeListener<Double> listener = (observable, oldValue, newValue) -> {
-                control.updateCanvas();
+                control.renderer.invalidate();
         };
         this.brightnessProperty.addListener(listener);
         this.hueProperty.addListener(listener);
         this.opacityProperty.addListener(listener);
         this.saturationProperty.addListener(listener);
-    }
-
-    private void drawBackground() {
-
-        double w = this.background.getWidth();
-        double h = this.background.getHeight();
-
-        PixelWriter writer = this.background.getPixelWriter();
-
-        for (int y = 0; y < h; y++) {
-            double opacity = (h - 1 - y) / (h - 1); 
-            for (int x = 0; x < w; x++) {
-                if (x / 3 % 2 == y / 3 % 2)
-                    writer.setColor(x, y, Color.gray(0.75));
-                else
-                    writer.setColor(x, y, Color.gray(1.0));
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                control.renderer.invalidate();
             }
-        }
+        );
     }
 
     public ObjectProperty<Double> brightnessProperty() {
         return this.brightnessProperty;
     }
 
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
     public ObjectProperty<Double> hueProperty() {
         return this.hueProperty;
     }
@@ -156,57 +152,163 @@ public class OpacityPickerControl extends Pane {
         return this.saturationProperty;
     }
 
-    private void updateCanvas() {
+    /* the filtered color, without alpha */
+    private int getRgb() {
+
+        Color c = Color.hsb(
+            this.hueProperty.getValue(),
+            this.saturationProperty.getValue(),
+            this.brightnessProperty.getValue()
+        );
+        return this.colorVisionProperty.getValue().filter(
+            ColorMath.argb(c.getRed(), c.getGreen(), c.getBlue(), 0.0)
+        );
+    }
+
+    /* opaque to transparent over a vector checkerboard */
+    private final class GradientRenderer implements Renderer {
+
+        private final int height;
+        private final Pane pane;
+        private final Region strip;
+        private final Polygon left;
+        private final Polygon right;
+
+        GradientRenderer(int width, int height) {
+
+            this.height = height;
+            this.pane = GradientLayers.newPane(width, height);
+            this.strip = GradientLayers.newRegion(width, height);
+            this.left = GradientLayers.newTriangle(width, true);
+            this.right = GradientLayers.newTriangle(width, false);
+            this.pane.getChildren().addAll(
+                Checkerboard.newCanvas(width, height),
+                this.strip, this.left, this.right
+            );
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void render() {
+
+            OpacityPickerControl control = OpacityPickerControl.this;
+            int rgb = control.getRgb();
+            GradientLayers.setFill(this.strip, GradientLayers.vertical(
+                this.height,
+                new Stop(0, Color.rgb(
+                    rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, 1.0
+                )),
+                new Stop(1, Color.rgb(
+                    rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, 0.0
+                ))
+            ));
+
+            int h = this.height;
+            double o = control.opacityProperty.getValue();
+            int y = (h - 1) - (int)Math.round(o * (h - 1) / 1.0);
+            this.left.setLayoutY(y);
+            this.right.setLayoutY(y);
+        }
+    }
+
+    private final class PixelRenderer implements Renderer {
 
-        double w = this.canvas.getWidth();
-        double h = this.canvas.getHeight();
+        private final PixelBuffer background;
+        private final PixelBuffer canvas;
+        private final Group group;
 
-        double hue = this.hueProperty.getValue();
-        double sat = this.saturationProperty.getValue();
-        double bri = this.brightnessProperty.getValue();
+        PixelRenderer(int width, int height) {
 
-        PixelWriter writer = this.canvas.getPixelWriter();
+            this.background = new PixelBuffer(width, height);
+            this.canvas = new PixelBuffer(width, height);
+            this.group = new Group(
+                this.background.getView(), this.canvas.getView()
+            );
+        }
 
-        for (int y = 0; y < h; y++) {
-            double opacity = (h - 1 - y) / (h - 1); 
-            for (int x = 0; x < w; x++) {
-                writer.setColor(x, y, Color.hsb(hue, sat, bri, opacity));
-            }
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[] { this.background, this.canvas };
         }
 
-        double o = this.opacityProperty.getValue();
-        int y = (int)(h - 1) - (int)Math.round(o * (h - 1) / 1.0);
-        int[][] left = {
-            {0, y - 2},
-            {0, y - 1}, {1, y - 1},
-            {0, y},     {1, y},     {2, y},
-            {0, y + 1}, {1, y + 1},
-            {0, y + 2}
-        };
-        int[][] right = {
-            {(int)w - 1, y - 2},
-            {(int)w - 1, y - 1}, {(int)w - 2, y - 1},
-            {(int)w - 1, y},     {(int)w - 2, y},     {(int)w - 3, y},
-            {(int)w - 1, y + 1}, {(int)w - 2, y + 1},
-            {(int)w - 1, y + 2}
-        };
-        for (int i = 0; i < left.length; i++) {
-            if (left[i][0] < 0 || left[i][1] < 0)
-                continue;
-            if (left[i][0] > this.canvas.getWidth() - 1)
-                continue;
-            if (left[i][1] > this.canvas.getHeight() - 1)
-                continue;
-            writer.setColor(left[i][0], left[i][1], Color.BLACK);
+        @Override
+        public Node getNode() {
+            return this.group;
         }
-        for (int i = 0; i < left.length; i++) {
-            if (right[i][0] < 0 || right[i][1] < 0)
-                continue;
-            if (right[i][0] > this.canvas.getWidth() - 1)
-                continue;
-            if (right[i][1] > this.canvas.getHeight() - 1)
-                continue;
-            writer.setColor(right[i][0], right[i][1], Color.BLACK);
+
+        @Override
+        public void render() {
+
+            if (this.background.allocate()) {
+                Checkerboard.fill(
+                    this.background.getPixels(),
+                    this.background.getWidth(),
+                    this.background.getHeight()
+                );
+                this.background.flush();
+            }
+            this.canvas.allocate();
+            int[] pixels = this.canvas.getPixels();
+            int w = this.canvas.getWidth();
+            int h = this.canvas.getHeight();
+
+            /* the strip only varies in alpha, so filter the color once */
+            OpacityPickerControl control = OpacityPickerControl.this;
+            int rgb = control.getRgb();
+
+            for (int y = 0; y < h; y++) {
+                double opacity = (h - 1 - y) / (double)(h - 1); 
+                int argb = (int)Math.round(opacity * 255) << 24 | rgb;
+                for (int x = 0; x < w; x++) {
+                    pixels[y * w + x] = argb;
+                }
+            }
+
+            double o = control.opacityProperty.getValue();
+            int y = (h - 1) - (int)Math.round(o * (h - 1) / 1.0);
+            int[][] left = {
+                {0, y - 2},
+                {0, y - 1}, {1, y - 1},
+                {0, y},     {1, y},     {2, y},
+                {0, y + 1}, {1, y + 1},
+                {0, y + 2}
+            };
+            int[][] right = {
+                {w - 1, y - 2},
+                {w - 1, y - 1}, {w - 2, y - 1},
+                {w - 1, y},     {w - 2, y},     {w - 3, y},
+                {w - 1, y + 1}, {w - 2, y + 1},
+                {w - 1, y + 2}
+            };
+            for (int i = 0; i < left.length; i++) {
+                if (left[i][0] < 0 || left[i][1] < 0)
+                    continue;
+                if (left[i][0] > w - 1)
+                    continue;
+                if (left[i][1] > h - 1)
+                    continue;
+                pixels[left[i][1] * w + left[i][0]] = 0xFF000000;
+            }
+            for (int i = 0; i < left.length; i++) {
+                if (right[i][0] < 0 || right[i][1] < 0)
+                    continue;
+                if (right[i][0] > w - 1)
+                    continue;
+                if (right[i][1] > h - 1)
+                    continue;
+                pixels[right[i][1] * w + right[i][0]] = 0xFF000000;
+            }
+
+            this.canvas.flush();
         }
     }
 }
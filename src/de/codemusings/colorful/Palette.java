@@ -0,0 +1,134 @@
+/* Palette.java - A growable list of packed colors
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.Arrays;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+public class Palette {
+
+    private final ReadOnlyIntegerWrapper versionProperty;
+
+    private int[] colors;
+    private int size;
+
+    public Palette() {
+        this.versionProperty = new ReadOnlyIntegerWrapper(0);
+        this.colors = new int[64];
+    }
+
+    public void add(int argb) {
+
+        this.ensureCapacity(this.size + 1);
+        this.colors[this.size++] = argb;
+        this.changed();
+    }
+
+    public void addAll(int[] colors, int offset, int length) {
+
+        this.ensureCapacity(this.size + length);
+        System.arraycopy(colors, offset, this.colors, this.size, length);
+        this.size += length;
+        this.changed();
+    }
+
+    public void clear() {
+
+        this.size = 0;
+        this.changed();
+    }
+
+    /* the backing array, valid up to size() and not to be modified */
+    int[] getColors() {
+        return this.colors;
+    }
+
+    public int get(int index) {
+
+        if (index >= this.size)
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        return this.colors[index];
+    }
+
+    public void remove(int index) {
+
+        if (index >= this.size)
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        System.arraycopy(
+            this.colors, index + 1, this.colors, index, this.size - index - 1
+        );
+        this.size--;
+        this.changed();
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.colors, this.size);
+    }
+
+    /* swaps in an array holding at least size() colors, used by
+     * PaletteBatch to apply and undo without copying */
+    int[] swap(int[] colors) {
+
+        if (colors.length < this.size)
+            throw new IllegalArgumentException("too few colors");
+        int[] old = this.colors;
+        this.colors = colors;
+        this.changed();
+        return old;
+    }
+
+    /* incremented on every change, used to invalidate derived caches */
+    public ReadOnlyIntegerProperty versionProperty() {
+        return this.versionProperty.getReadOnlyProperty();
+    }
+
+    private void changed() {
+        this.versionProperty.set(this.versionProperty.get() + 1);
+    }
+
+    private void ensureCapacity(int capacity) {
+
+        if (capacity <= this.colors.length)
+            return;
+        this.colors = Arrays.copyOf(
+            this.colors, Math.max(capacity, this.colors.length * 2)
+        );
+    }
+}
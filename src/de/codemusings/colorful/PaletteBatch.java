@@ -0,0 +1,117 @@
+/* PaletteBatch.java - Previews and applies a transform to a whole palette
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.stream.IntStream;
+
+/* Reads the colors straight from the palette and writes the transformed
+ * ones into a single array of its own, in parallel chunks. The array is
+ * only recomputed when the transform or an offset changes. Applying hands
+ * that array to the palette and keeps the old one for undo, so the palette
+ * is copied at most once per batch.
+ */
+final class PaletteBatch {
+
+    private static final int CHUNK = 2048;
+
+    private final Palette palette;
+    private final int[] source;
+    private final int size;
+    private int version;
+
+    private int[] target;
+    private PaletteTransform transform;
+    private double dh;
+    private double ds;
+    private double db;
+    private boolean applied;
+
+    PaletteBatch(Palette palette) {
+
+        this.palette = palette;
+        this.source = palette.getColors();
+        this.size = palette.size();
+        this.version = palette.versionProperty().get();
+    }
+
+    /* false once the palette changed behind the batch's back */
+    boolean isCurrent() {
+        return this.palette.versionProperty().get() == this.version;
+    }
+
+    boolean apply() {
+
+        if (this.applied || this.target == null || !this.isCurrent())
+            return false;
+        this.palette.swap(this.target);
+        this.version = this.palette.versionProperty().get();
+        this.applied = true;
+        return true;
+    }
+
+    int[] preview(PaletteTransform transform,
+                  double dh, double ds, double db) {
+
+        if (this.target != null && transform == this.transform &&
+                dh == this.dh && ds == this.ds && db == this.db)
+            return this.target;
+        if (this.target == null)
+            this.target = new int[this.size];
+        this.transform = transform;
+        this.dh = dh;
+        this.ds = ds;
+        this.db = db;
+
+        int[] source = this.source;
+        int[] target = this.target;
+        int chunks = (this.size + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach((int chunk) -> {
+            double[] c = new double[4];
+            int end = Math.min(this.size, (chunk + 1) * CHUNK);
+            for (int i = chunk * CHUNK; i < end; i++)
+                target[i] = transform.apply(source[i], c, dh, ds, db);
+        });
+        return target;
+    }
+
+    boolean undo() {
+
+        if (!this.applied || !this.isCurrent())
+            return false;
+        this.palette.swap(this.source);
+        this.version = this.palette.versionProperty().get();
+        this.applied = false;
+        return true;
+    }
+}
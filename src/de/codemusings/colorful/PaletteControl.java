@@ -0,0 +1,180 @@
+/* PaletteControl.java - A swatch view for a palette
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.function.IntConsumer;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+
+import javafx.scene.image.ImageView;
+
+import javafx.scene.layout.Pane;
+
+public class PaletteControl extends Pane {
+
+    private static final int CELL_SIZE = 14;
+
+    private final ObjectProperty<ColorVision> colorVisionProperty;
+
+    private final Palette palette;
+    private final PixelBuffer canvas;
+    private final LazyRenderer renderer;
+    private final int columns;
+    private final int rows;
+
+    private IntConsumer onSelect;
+    private int[] preview;
+    private int firstRow;
+
+    public PaletteControl() {
+        this(380, 44);
+    }
+
+    public PaletteControl(double width, double height) {
+
+        super.setMinSize(width, height);
+        super.setMaxSize(width, height);
+
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
+
+        this.palette = new Palette();
+        this.canvas = new PixelBuffer((int)width - 2, (int)height - 2);
+        this.columns = ((int)width - 2) / CELL_SIZE;
+        this.rows = ((int)height - 2) / CELL_SIZE;
+
+        ImageView view = this.canvas.getView();
+        super.getChildren().add(view);
+        view.relocate(1, 1);
+        this.renderer = new LazyRenderer(this, this::updateCanvas, this.canvas);
+
+        /* primary click selects a swatch, secondary click removes it */
+        view.setOnMouseClicked((MouseEvent e) -> {
+            int column = (int)e.getX() / CELL_SIZE;
+            int row = (int)e.getY() / CELL_SIZE;
+            if (column >= this.columns)
+                return;
+            int index = (this.firstRow + row) * this.columns + column;
+            if (index >= this.palette.size())
+                return;
+            if (e.getButton() == MouseButton.SECONDARY)
+                this.palette.remove(index);
+            else if (this.onSelect != null)
+                this.onSelect.accept(this.palette.get(index));
+        });
+        view.setOnScroll((ScrollEvent e) -> {
+            this.scrollTo(this.firstRow + (e.getDeltaY() < 0 ? 1 : -1));
+        });
+
+        this.palette.versionProperty().addListener(
+            (observable, oldValue, newValue) -> {
+                this.scrollTo(this.firstRow);
+            }
+        );
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.renderer.invalidate();
+            }
+        );
+    }
+
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
+    public Palette getPalette() {
+        return this.palette;
+    }
+
+    public void setOnSelect(IntConsumer onSelect) {
+        this.onSelect = onSelect;
+    }
+
+    /* shows these colors in place of the palette's own until reset to
+     * null, used to preview a transform */
+    public void setPreview(int[] colors) {
+
+        this.preview = colors;
+        this.renderer.invalidate();
+    }
+
+    private void scrollTo(int row) {
+
+        int total = (this.palette.size() + this.columns - 1) / this.columns;
+        this.firstRow = Math.max(0, Math.min(row, total - this.rows));
+        this.renderer.invalidate();
+    }
+
+    private void updateCanvas() {
+
+        this.canvas.allocate();
+        int[] pixels = this.canvas.getPixels();
+        int w = this.canvas.getWidth();
+        int h = this.canvas.getHeight();
+
+        /* the palette may grow before the owner drops a stale preview */
+        int[] preview = this.preview;
+        int first = this.firstRow * this.columns;
+        for (int y = 0; y < h; y++) {
+            int row = y / CELL_SIZE;
+            boolean inset = y % CELL_SIZE == CELL_SIZE - 1;
+            for (int x = 0; x < w; x++) {
+                int column = x / CELL_SIZE;
+                int index = first + row * this.columns + column;
+                int gray = x / 3 % 2 == y / 3 % 2 ? 191 : 255;
+                if (inset || x % CELL_SIZE == CELL_SIZE - 1 ||
+                    column >= this.columns || row >= this.rows ||
+                    index >= this.palette.size())
+                    pixels[y * w + x] = 0xFFFFFFFF;
+                else
+                    pixels[y * w + x] = ColorMath.composite(
+                        preview != null && index < preview.length ?
+                            preview[index] : this.palette.get(index),
+                        gray
+                    );
+            }
+        }
+        this.colorVisionProperty.getValue().filter(
+            pixels, 0, pixels.length
+        );
+
+        this.canvas.flush();
+    }
+}
@@ -0,0 +1,271 @@
+/* PaletteQuantizer.java - Maps images onto a fixed palette
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.awt.image.BufferedImage;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+/* Nearest colors are looked up in a cube of RGB cells. Every cell holds
+ * the palette entry closest to its center in OKLab, so quantizing a pixel
+ * costs one array access no matter how large the palette is.
+ */
+public class PaletteQuantizer {
+
+    public static final int DEFAULT_BITS = 5;
+
+    /* cube cells hold palette indices as shorts */
+    public static final int MAX_COLORS = Short.MAX_VALUE;
+
+    private final int[] palette;
+    private final int bits;
+    private final short[] cube;
+
+    public PaletteQuantizer(int[] palette) {
+        this(palette, DEFAULT_BITS);
+    }
+
+    public PaletteQuantizer(int[] palette, int bits) {
+
+        if (palette.length == 0 || palette.length > MAX_COLORS)
+            throw new IllegalArgumentException(
+                "palette size out of range: " + palette.length
+            );
+        if (bits < 1 || bits > 8)
+            throw new IllegalArgumentException("bits out of range: " + bits);
+
+        this.palette = palette.clone();
+        this.bits = bits;
+        this.cube = new short[1 << 3 * bits];
+
+        double[] lab = new double[3 * palette.length];
+        double[] c = new double[3];
+        for (int i = 0; i < palette.length; i++) {
+            this.oklab(palette[i] >> 16 & 0xFF, palette[i] >> 8 & 0xFF,
+                palette[i] & 0xFF, c);
+            System.arraycopy(c, 0, lab, 3 * i, 3);
+        }
+
+        int n = 1 << bits;
+        double cell = 256.0 / n;
+        IntStream.range(0, n).parallel().forEach((int r) -> {
+            double[] center = new double[3];
+            for (int g = 0; g < n; g++) {
+                for (int b = 0; b < n; b++) {
+                    this.oklab((r + 0.5) * cell, (g + 0.5) * cell,
+                        (b + 0.5) * cell, center);
+                    int nearest = 0;
+                    double distance = Double.MAX_VALUE;
+                    for (int i = 0; i < palette.length; i++) {
+                        double dl = lab[3 * i] - center[0];
+                        double da = lab[3 * i + 1] - center[1];
+                        double db = lab[3 * i + 2] - center[2];
+                        double d = dl * dl + da * da + db * db;
+                        if (d < distance) {
+                            distance = d;
+                            nearest = i;
+                        }
+                    }
+                    this.cube[(r << bits | g) << bits | b] = (short)nearest;
+                }
+            }
+        });
+    }
+
+    public int[] getPalette() {
+        return this.palette.clone();
+    }
+
+    public int nearest(int argb) {
+        return this.cube[this.cell(
+            argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF
+        )];
+    }
+
+    /* quantizes the pixels in place, alpha is left untouched */
+    public void quantize(int[] pixels, int width, int height, boolean dither) {
+
+        int bands = Math.min(
+            height, Runtime.getRuntime().availableProcessors() * 4
+        );
+        IntStream.range(0, bands).parallel().forEach((int band) -> {
+            int start = (int)((long)height * band / bands);
+            int end = (int)((long)height * (band + 1) / bands);
+            if (dither)
+                this.dither(pixels, width, start, end);
+            else
+                this.map(pixels, width, start, end);
+        });
+    }
+
+    public void quantize(File input, File output, boolean dither)
+        throws IOException
+    {
+        BufferedImage image = ImageIO.read(input);
+        if (image == null)
+            throw new IOException("unsupported image: " + input);
+
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+        this.quantize(pixels, w, h, dither);
+
+        BufferedImage result = new BufferedImage(
+            w, h, BufferedImage.TYPE_INT_ARGB
+        );
+        result.setRGB(0, 0, w, h, pixels, 0, w);
+        ImageIO.write(result, "png", output);
+    }
+
+    private int cell(int r, int g, int b) {
+
+        int shift = 8 - this.bits;
+        return ((r >> shift << this.bits | g >> shift) << this.bits) |
+               b >> shift;
+    }
+
+    /* Floyd-Steinberg error diffusion, errors do not cross band borders */
+    private void dither(int[] pixels, int width, int start, int end) {
+
+        float[] current = new float[3 * (width + 2)];
+        float[] next = new float[3 * (width + 2)];
+
+        for (int y = start; y < end; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                int e = 3 * (x + 1);
+                int p = pixels[i];
+                int r = clamp((p >> 16 & 0xFF) + current[e]);
+                int g = clamp((p >> 8 & 0xFF) + current[e + 1]);
+                int b = clamp((p & 0xFF) + current[e + 2]);
+
+                int q = this.palette[this.cube[this.cell(r, g, b)]];
+                pixels[i] = p & 0xFF000000 | q & 0xFFFFFF;
+
+                diffuse(current, next, e, r - (q >> 16 & 0xFF));
+                diffuse(current, next, e + 1, g - (q >> 8 & 0xFF));
+                diffuse(current, next, e + 2, b - (q & 0xFF));
+            }
+            float[] swap = current;
+            current = next;
+            next = swap;
+            Arrays.fill(next, 0f);
+        }
+    }
+
+    private void map(int[] pixels, int width, int start, int end) {
+
+        for (int i = start * width; i < end * width; i++) {
+            int p = pixels[i];
+            int q = this.palette[this.nearest(p)];
+            pixels[i] = p & 0xFF000000 | q & 0xFFFFFF;
+        }
+    }
+
+    private void oklab(double r, double g, double b, double[] lab) {
+        ColorMath.linearToOklab(
+            ColorMath.toLinear(r / 255), ColorMath.toLinear(g / 255),
+            ColorMath.toLinear(b / 255), lab
+        );
+    }
+
+    private static void diffuse(float[] current, float[] next, int e,
+        float error)
+    {
+        current[e + 3] += error * 7 / 16f;
+        next[e - 3] += error * 3 / 16f;
+        next[e] += error * 5 / 16f;
+        next[e + 3] += error / 16f;
+    }
+
+    private static int clamp(float value) {
+        return value < 0 ? 0 : value > 255 ? 255 : (int)(value + 0.5f);
+    }
+
+    /* Usage: PaletteQuantizer [-dither] [-bits n] -palette color,color,...
+     *                         input output [input output ...]
+     *
+     * Colors are CSS color values, e.g. "#FF8800,rgb(0 128 255),teal".
+     */
+    public static void main(String[] args) throws IOException {
+
+        boolean dither = false;
+        int bits = DEFAULT_BITS;
+        List<Integer> colors = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-dither")) {
+                dither = true;
+            } else if (args[i].equals("-bits") && i + 1 < args.length) {
+                bits = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-palette") && i + 1 < args.length) {
+                String value = args[++i];
+                if (new CssColorParser().parseAll(value, colors::add) > 0)
+                    throw new IllegalArgumentException(
+                        "invalid color in: " + value
+                    );
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (colors.isEmpty() || files.isEmpty() || files.size() % 2 != 0) {
+            System.err.println(
+                "Usage: PaletteQuantizer [-dither] [-bits n] " +
+                "-palette color,color,... input output [input output ...]"
+            );
+            System.exit(1);
+        }
+
+        int[] palette = new int[colors.size()];
+        for (int i = 0; i < palette.length; i++)
+            palette[i] = colors.get(i);
+
+        /* the cube is built once and shared by all images */
+        PaletteQuantizer quantizer = new PaletteQuantizer(palette, bits);
+        for (int i = 0; i < files.size(); i += 2) {
+            quantizer.quantize(
+                new File(files.get(i)), new File(files.get(i + 1)), dither
+            );
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/* PaletteTransform.java - Adjustments applied to every color of a palette
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+/* Every transform takes the hue, saturation and brightness offsets of the
+ * picker relative to where the transform started and uses the ones that
+ * make sense for it. Alpha is kept.
+ */
+public enum PaletteTransform {
+
+    /* rotates the HSB hue by the hue offset */
+    HUE_ROTATE {
+
+        @Override
+        int apply(int argb, double[] c, double dh, double ds, double db) {
+
+            PaletteTransform.toHsb(argb, c);
+            c[0] = (c[0] + dh + 360) % 360;
+            return PaletteTransform.fromHsb(c, argb);
+        }
+    },
+
+    /* scales the HSB saturation by one plus the saturation offset */
+    SATURATION_SCALE {
+
+        @Override
+        int apply(int argb, double[] c, double dh, double ds, double db) {
+
+            PaletteTransform.toHsb(argb, c);
+            c[1] = Math.max(0, Math.min(1, c[1] * (1 + ds)));
+            return PaletteTransform.fromHsb(c, argb);
+        }
+    },
+
+    /* moves the OKLCH lightness by the brightness offset */
+    OKLCH_LIGHTEN {
+
+        @Override
+        int apply(int argb, double[] c, double dh, double ds, double db) {
+
+            PaletteTransform.toOklch(argb, c);
+            c[0] = Math.max(0, Math.min(1, c[0] + db));
+            return PaletteTransform.fromOklch(c, argb);
+        }
+    },
+
+    /* rotates the OKLCH hue and scales its chroma but keeps the lightness,
+     * so the contrast between the colors of the palette stays the same */
+    CONTRAST_PRESERVE {
+
+        @Override
+        int apply(int argb, double[] c, double dh, double ds, double db) {
+
+            PaletteTransform.toOklch(argb, c);
+            c[1] = Math.max(0, c[1] * (1 + ds));
+            c[2] = c[2] + dh;
+            return PaletteTransform.fromOklch(c, argb);
+        }
+    };
+
+    /* c is scratch space of at least four entries */
+    abstract int apply(
+        int argb, double[] c, double dh, double ds, double db
+    );
+
+    private static int fromHsb(double[] c, int argb) {
+
+        double h = c[0] / 60;
+        double s = c[1];
+        double v = c[2];
+        int sector = (int)h % 6;
+        double f = h - Math.floor(h);
+        double p = v * (1 - s);
+        double q = v * (1 - s * f);
+        double t = v * (1 - s * (1 - f));
+        double r, g, b;
+        switch (sector) {
+            case 0:  r = v; g = t; b = p; break;
+            case 1:  r = q; g = v; b = p; break;
+            case 2:  r = p; g = v; b = t; break;
+            case 3:  r = p; g = q; b = v; break;
+            case 4:  r = t; g = p; b = v; break;
+            default: r = v; g = p; b = q; break;
+        }
+        return argb & 0xFF000000 |
+               (int)Math.round(r * 255) << 16 |
+               (int)Math.round(g * 255) << 8 |
+               (int)Math.round(b * 255);
+    }
+
+    /* reduces the chroma until the color fits into sRGB */
+    private static int fromOklch(double[] c, int argb) {
+
+        double l = c[0];
+        double chroma = c[1];
+        double hue = Math.toRadians(c[2]);
+        double cos = Math.cos(hue);
+        double sin = Math.sin(hue);
+
+        ColorMath.oklabToLinear(l, chroma * cos, chroma * sin, c);
+        if (!PaletteTransform.inGamut(c)) {
+            double low = 0;
+            double high = chroma;
+            for (int i = 0; i < 16; i++) {
+                double mid = (low + high) / 2;
+                ColorMath.oklabToLinear(l, mid * cos, mid * sin, c);
+                if (PaletteTransform.inGamut(c))
+                    low = mid;
+                else
+                    high = mid;
+            }
+            ColorMath.oklabToLinear(l, low * cos, low * sin, c);
+        }
+        return argb & 0xFF000000 |
+               ColorMath.encode((float)c[0]) << 16 |
+               ColorMath.encode((float)c[1]) << 8 |
+               ColorMath.encode((float)c[2]);
+    }
+
+    private static boolean inGamut(double[] c) {
+
+        double e = 1e-6;
+        return c[0] >= -e && c[0] <= 1 + e &&
+               c[1] >= -e && c[1] <= 1 + e &&
+               c[2] >= -e && c[2] <= 1 + e;
+    }
+
+    private static void toHsb(int argb, double[] c) {
+
+        double r = (argb >> 16 & 0xFF) / 255.0;
+        double g = (argb >> 8 & 0xFF) / 255.0;
+        double b = (argb & 0xFF) / 255.0;
+        double max = Math.max(r, Math.max(g, b));
+        double min = Math.min(r, Math.min(g, b));
+        double d = max - min;
+
+        double h = 0;
+        if (d > 0) {
+            if (max == r)
+                h = (g - b) / d;
+            else if (max == g)
+                h = (b - r) / d + 2;
+            else
+                h = (r - g) / d + 4;
+        }
+        c[0] = (h * 60 + 360) % 360;
+        c[1] = max > 0 ? d / max : 0;
+        c[2] = max;
+    }
+
+    private static void toOklch(int argb, double[] c) {
+
+        ColorMath.linearToOklab(
+            ColorMath.decode(argb >> 16 & 0xFF),
+            ColorMath.decode(argb >> 8 & 0xFF),
+            ColorMath.decode(argb & 0xFF),
+            c
+        );
+        double chroma = Math.sqrt(c[1] * c[1] + c[2] * c[2]);
+        c[2] = Math.toDegrees(Math.atan2(c[2], c[1]));
+        c[1] = chroma;
+    }
+}
@@ -0,0 +1,85 @@
+/* PixelBudget.java - Accounting for the memory held by pixel buffers
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/* Process wide limit for pixel buffers, configured in bytes through the
+ * colorful.pixelBudget system property. Exceeding it releases the least
+ * recently used buffers of hidden controls. Visible buffers are never
+ * released, so the limit is a target rather than a hard cap.
+ */
+final class PixelBudget {
+
+    private static final long LIMIT = Long.getLong(
+        "colorful.pixelBudget", 64L * 1024 * 1024
+    );
+
+    private static final List<PixelBuffer> buffers = new ArrayList<>();
+    private static long allocated;
+
+    private PixelBudget() {
+    }
+
+    static void allocated(PixelBuffer buffer) {
+
+        PixelBudget.buffers.add(buffer);
+        PixelBudget.allocated += buffer.getByteCount();
+        if (PixelBudget.allocated > PixelBudget.LIMIT)
+            PixelBudget.evict();
+    }
+
+    static void released(PixelBuffer buffer) {
+
+        if (PixelBudget.buffers.remove(buffer))
+            PixelBudget.allocated -= buffer.getByteCount();
+    }
+
+    private static void evict() {
+
+        List<PixelBuffer> candidates = new ArrayList<>();
+        for (PixelBuffer buffer : PixelBudget.buffers) {
+            if (buffer.isHidden())
+                candidates.add(buffer);
+        }
+        candidates.sort(Comparator.comparingLong(PixelBuffer::getLastUsed));
+        for (PixelBuffer buffer : candidates) {
+            if (PixelBudget.allocated <= PixelBudget.LIMIT)
+                break;
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/* PixelBuffer.java - A releasable pixel buffer backing an image view
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/* Pairs an int[] with the WritableImage it is copied into. Both are only
+ * allocated while needed and can be dropped while the owner is hidden.
+ */
+final class PixelBuffer {
+
+    private final int width;
+    private final int height;
+    private final ImageView view;
+
+    private int[] pixels;
+    private WritableImage image;
+
+    private boolean hidden;
+    private long lastUsed;
+
+    PixelBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.view = new ImageView();
+    }
+
+    /* returns true if the buffer was (re)allocated and must be redrawn */
+    boolean allocate() {
+
+        this.lastUsed = System.nanoTime();
+        if (this.pixels != null)
+            return false;
+
+        this.pixels = new int[this.width * this.height];
+        this.image = new WritableImage(this.width, this.height);
+        this.view.setImage(this.image);
+        PixelBudget.allocated(this);
+        return true;
+    }
+
+    void flush() {
+        this.flush(0, 0, this.width, this.height);
+    }
+
+    void flush(int x, int y, int w, int h) {
+        this.image.getPixelWriter().setPixels(
+            x, y, w, h, PixelFormat.getIntArgbInstance(),
+            this.pixels, y * this.width + x, this.width
+        );
+    }
+
+    long getByteCount() {
+
+        /* the int[] plus the image's own copy of the pixels */
+        return 8L * this.width * this.height;
+    }
+
+    int getHeight() {
+        return this.height;
+    }
+
+    long getLastUsed() {
+        return this.lastUsed;
+    }
+
+    int[] getPixels() {
+        return this.pixels;
+    }
+
+    ImageView getView() {
+        return this.view;
+    }
+
+    int getWidth() {
+        return this.width;
+    }
+
+    boolean isAllocated() {
+        return this.pixels != null;
+    }
+
+    boolean isHidden() {
+        return this.hidden;
+    }
+
+    void release() {
+
+        if (this.pixels == null)
+            return;
+        this.pixels = null;
+        this.image = null;
+        this.view.setImage(null);
+        PixelBudget.released(this);
+    }
+
+    void setHidden(boolean hidden) {
+        this.hidden = hidden;
+    }
+}
@@ -0,0 +1,195 @@
+/* Planckian.java - Correlated color temperature and tint.
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+/* Chromaticities of the Planckian locus in CIE 1960 UCS, tabulated at
+ * class load uniformly in mired, which spaces perceived temperature
+ * changes about evenly. Temperatures are interpolated from the table, tint
+ * is the signed distance Duv from the locus, positive towards green.
+ */
+final class Planckian {
+
+    static final double MIN_KELVIN = 1000;
+    static final double MAX_KELVIN = 40000;
+
+    private static final double MIN_MIRED = 1e6 / MAX_KELVIN;
+    private static final double MAX_MIRED = 1e6 / MIN_KELVIN;
+
+    private static final int SIZE = 4096;
+    private static final int COARSE = 32;
+
+    private static final double[] U = new double[SIZE];
+    private static final double[] V = new double[SIZE];
+
+    static {
+
+        /* CIE 1931 matching functions from the multi-lobe fit by Wyman,
+         * Sloan and Shirley, sampled every 5 nm */
+        int n = (830 - 360) / 5 + 1;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++) {
+            double l = 360 + i * 5;
+            x[i] = 1.056 * Planckian.lobe(l, 599.8, 37.9, 31.0) +
+                   0.362 * Planckian.lobe(l, 442.0, 16.0, 26.7) -
+                   0.065 * Planckian.lobe(l, 501.1, 20.4, 26.2);
+            y[i] = 0.821 * Planckian.lobe(l, 568.8, 46.9, 40.5) +
+                   0.286 * Planckian.lobe(l, 530.9, 16.3, 31.1);
+            z[i] = 1.217 * Planckian.lobe(l, 437.0, 11.8, 36.0) +
+                   0.681 * Planckian.lobe(l, 459.0, 26.0, 13.8);
+        }
+
+        for (int k = 0; k < SIZE; k++) {
+            double t = 1e6 / Planckian.toMired(k);
+            double sx = 0, sy = 0, sz = 0;
+            for (int i = 0; i < n; i++) {
+                double l = (360 + i * 5) * 1e-9;
+                double m = 1 / (l * l * l * l * l *
+                                (Math.exp(1.4387769e-2 / (l * t)) - 1));
+                sx += m * x[i];
+                sy += m * y[i];
+                sz += m * z[i];
+            }
+            double d = sx + 15 * sy + 3 * sz;
+            U[k] = 4 * sx / d;
+            V[k] = 6 * sy / d;
+        }
+    }
+
+    private Planckian() {
+    }
+
+    /* nearest temperature and tint of a linear sRGB color into cct, false
+     * for black which has no chromaticity */
+    static boolean fromLinear(double r, double g, double b, double[] cct) {
+
+        double x = 0.4124564 * r + 0.3575761 * g + 0.1804375 * b;
+        double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+        double z = 0.0193339 * r + 0.1191920 * g + 0.9503041 * b;
+        double d = x + 15 * y + 3 * z;
+        if (d <= 0)
+            return false;
+        double u = 4 * x / d;
+        double v = 6 * y / d;
+
+        /* coarse scan, then a fine one around the best coarse entry */
+        int best = 0;
+        for (int k = 0; k < SIZE; k += COARSE) {
+            if (Planckian.distance(k, u, v) < Planckian.distance(best, u, v))
+                best = k;
+        }
+        int start = Math.max(0, best - COARSE);
+        int end = Math.min(SIZE - 1, best + COARSE);
+        for (int k = start; k <= end; k++) {
+            if (Planckian.distance(k, u, v) < Planckian.distance(best, u, v))
+                best = k;
+        }
+
+        /* the vertex of a parabola through the neighbours refines the
+         * position between table entries */
+        double t = best;
+        if (best > 0 && best < SIZE - 1) {
+            double d0 = Planckian.distance(best - 1, u, v);
+            double d1 = Planckian.distance(best, u, v);
+            double d2 = Planckian.distance(best + 1, u, v);
+            double c = d0 - 2 * d1 + d2;
+            if (c > 0)
+                t += Math.max(-1, Math.min(1, (d0 - d2) / (2 * c)));
+        }
+
+        int i = Math.min((int)t, SIZE - 2);
+        double f = t - i;
+        double du = U[i + 1] - U[i];
+        double dv = V[i + 1] - V[i];
+        double lu = U[i] + du * f;
+        double lv = V[i] + dv * f;
+        double duv = Math.hypot(u - lu, v - lv);
+        cct[0] = 1e6 / Planckian.toMired(t);
+        cct[1] = (v - lv) * du - (u - lu) * dv < 0 ? -duv : duv;
+        return true;
+    }
+
+    /* linear sRGB of a temperature and tint into rgb, clipped to the gamut
+     * and scaled so that the largest channel is one */
+    static void toLinear(double kelvin, double duv, double[] rgb) {
+
+        double t = (1e6 / kelvin - MIN_MIRED) * (SIZE - 1) /
+                   (MAX_MIRED - MIN_MIRED);
+        t = Math.max(0, Math.min(SIZE - 1, t));
+        int i = Math.min((int)t, SIZE - 2);
+        double f = t - i;
+        double du = U[i + 1] - U[i];
+        double dv = V[i + 1] - V[i];
+        double n = Math.hypot(du, dv);
+        double u = U[i] + du * f - dv / n * duv;
+        double v = V[i] + dv * f + du / n * duv;
+
+        /* CIE 1960 -> xyY with Y = 1 -> XYZ -> linear sRGB */
+        double d = 2 * u - 8 * v + 4;
+        double x = 3 * u / d;
+        double y = 2 * v / d;
+        double cx = x / y;
+        double cz = (1 - x - y) / y;
+        double r = 3.2404542 * cx - 1.5371385 - 0.4985314 * cz;
+        double g = -0.9692660 * cx + 1.8760108 + 0.0415560 * cz;
+        double b = 0.0556434 * cx - 0.2040259 + 1.0572252 * cz;
+        r = Math.max(0, r);
+        g = Math.max(0, g);
+        b = Math.max(0, b);
+        double max = Math.max(r, Math.max(g, b));
+        rgb[0] = r / max;
+        rgb[1] = g / max;
+        rgb[2] = b / max;
+    }
+
+    /* squared, only compared */
+    private static double distance(int k, double u, double v) {
+
+        double du = u - U[k];
+        double dv = v - V[k];
+        return du * du + dv * dv;
+    }
+
+    private static double lobe(
+            double lambda, double mean, double left, double right) {
+
+        double s = (lambda - mean) / (lambda < mean ? left : right);
+        return Math.exp(-0.5 * s * s);
+    }
+
+    private static double toMired(double k) {
+        return MIN_MIRED + k * (MAX_MIRED - MIN_MIRED) / (SIZE - 1);
+    }
+}
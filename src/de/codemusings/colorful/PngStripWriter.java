@@ -0,0 +1,316 @@
+/* PngStripWriter.java - Streams PNG images strip by strip
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/* Writes 8 bit RGBA PNG images whose rows arrive in strips. Every strip is
+ * filtered and deflated by an Encoder on its own, possibly on another
+ * thread, and ends on a byte boundary with a sync flush, so the strips
+ * concatenate into one zlib stream. Each strip becomes one IDAT chunk and
+ * the stream checksum is combined from the checksums of the strips.
+ */
+final class PngStripWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {
+        (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+    private static final byte[] IHDR = type("IHDR");
+    private static final byte[] IDAT = type("IDAT");
+    private static final byte[] IEND = type("IEND");
+
+    /* largest prime below 2^16, the Adler-32 modulus */
+    private static final int BASE = 65521;
+
+    private final FileChannel channel;
+    private final CRC32 crc;
+    private final ByteBuffer header;
+    private final ByteBuffer footer;
+
+    private int adler;
+
+    PngStripWriter(Path path, int width, int height) throws IOException {
+
+        this.channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        this.crc = new CRC32();
+        this.header = ByteBuffer.allocate(8);
+        this.footer = ByteBuffer.allocate(4);
+        this.adler = 1;
+
+        try {
+            this.write(ByteBuffer.wrap(SIGNATURE));
+            ByteBuffer ihdr = ByteBuffer.allocate(13);
+            ihdr.putInt(width).putInt(height);
+            /* bit depth 8, RGBA, deflate, adaptive filters, no interlace */
+            ihdr.put((byte)8).put((byte)6).put((byte)0).put((byte)0);
+            ihdr.put((byte)0);
+            ihdr.flip();
+            this.chunk(IHDR, ihdr);
+            /* zlib header: deflate with a 32K window, default level */
+            this.chunk(IDAT, ByteBuffer.wrap(new byte[] { 0x78, (byte)0x9C }));
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /* ends the zlib stream and the image after the last strip */
+    void finish() throws IOException {
+
+        ByteBuffer checksum = ByteBuffer.allocate(4);
+        checksum.putInt(this.adler).flip();
+        this.chunk(IDAT, checksum);
+        this.chunk(IEND, ByteBuffer.allocate(0));
+    }
+
+    /* strips have to be written in row order */
+    void write(Strip strip) throws IOException {
+
+        this.chunk(IDAT, ByteBuffer.wrap(strip.data));
+        this.adler = combine(this.adler, strip.adler, strip.length);
+    }
+
+    private void chunk(byte[] type, ByteBuffer data) throws IOException {
+
+        this.crc.reset();
+        this.crc.update(type);
+        this.crc.update(data.duplicate());
+
+        this.header.clear();
+        this.header.putInt(data.remaining()).put(type).flip();
+        this.footer.clear();
+        this.footer.putInt((int)this.crc.getValue()).flip();
+        this.write(this.header);
+        this.write(data);
+        this.write(this.footer);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining())
+            this.channel.write(buffer);
+    }
+
+    /* checksum of two concatenated blocks from the checksums of both and
+     * the length of the second, as adler32_combine in zlib */
+    private static int combine(int adler1, int adler2, long length2) {
+
+        long rem = length2 % BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = rem * sum1 % BASE;
+        sum1 += (adler2 & 0xFFFF) + BASE - 1;
+        sum2 += (adler1 >>> 16) + (adler2 >>> 16) + BASE - rem;
+        if (sum1 >= BASE)
+            sum1 -= BASE;
+        if (sum1 >= BASE)
+            sum1 -= BASE;
+        if (sum2 >= 2 * BASE)
+            sum2 -= 2 * BASE;
+        if (sum2 >= BASE)
+            sum2 -= BASE;
+        return (int)(sum2 << 16 | sum1);
+    }
+
+    private static byte[] type(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /* one deflated strip along with what is needed to chain it */
+    static final class Strip {
+
+        private final byte[] data;
+        private final int adler;
+        private final long length;
+
+        private Strip(byte[] data, int adler, long length) {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+
+    /* Filters and deflates strips of a fixed width. Encoders are not thread
+     * safe, every worker needs one of its own. Each row gets the Sub or the
+     * Up filter, whichever leaves the smaller sum of absolute differences.
+     */
+    static final class Encoder {
+
+        private final int width;
+        private final Deflater deflater;
+        private final Adler32 checksum;
+
+        private byte[] prior;
+        private byte[] line;
+        private byte[] raw;
+        private byte[] output;
+
+        Encoder(int width, int level) {
+
+            this.width = width;
+            this.deflater = new Deflater(level, true);
+            this.checksum = new Adler32();
+            this.prior = new byte[4 * width];
+            this.line = new byte[4 * width];
+            this.raw = new byte[0];
+            this.output = new byte[0];
+        }
+
+        /* encodes rows [context, context + rows) of pixels, the rows before
+         * are only used to filter the first one, the last strip closes the
+         * deflate stream */
+        Strip encode(int[] pixels, int context, int rows, boolean last) {
+
+            int w = this.width;
+            int stride = 1 + 4 * w;
+            int size = stride * rows;
+            if (this.raw.length < size) {
+                this.raw = new byte[size];
+                this.output = new byte[size + (size >> 10) + 64];
+            }
+
+            Arrays.fill(this.prior, (byte)0);
+            if (context > 0)
+                this.unpack(pixels, (context - 1) * w, this.prior);
+            for (int y = 0; y < rows; y++) {
+                this.unpack(pixels, (context + y) * w, this.line);
+                this.filter(this.raw, y * stride);
+                byte[] swap = this.prior;
+                this.prior = this.line;
+                this.line = swap;
+            }
+
+            this.checksum.reset();
+            this.checksum.update(this.raw, 0, size);
+            this.deflater.reset();
+            this.deflater.setInput(this.raw, 0, size);
+            int length = 0;
+            if (last) {
+                this.deflater.finish();
+                while (!this.deflater.finished()) {
+                    if (length == this.output.length)
+                        this.grow();
+                    length += this.deflater.deflate(
+                        this.output, length, this.output.length - length
+                    );
+                }
+            } else {
+                /* a full output buffer may hide a pending flush */
+                do {
+                    if (length == this.output.length)
+                        this.grow();
+                    length += this.deflater.deflate(
+                        this.output, length, this.output.length - length,
+                        Deflater.SYNC_FLUSH
+                    );
+                } while (length == this.output.length);
+            }
+
+            return new Strip(
+                Arrays.copyOf(this.output, length),
+                (int)this.checksum.getValue(),
+                size
+            );
+        }
+
+        void end() {
+            this.deflater.end();
+        }
+
+        private void filter(byte[] raw, int offset) {
+
+            byte[] line = this.line;
+            byte[] prior = this.prior;
+            int sub = 0;
+            int up = 0;
+            for (int i = 0; i < line.length; i++) {
+                int left = i < 4 ? 0 : line[i - 4];
+                sub += Math.abs((byte)(line[i] - left));
+                up += Math.abs((byte)(line[i] - prior[i]));
+            }
+
+            if (up < sub) {
+                raw[offset] = 2;
+                for (int i = 0; i < line.length; i++)
+                    raw[offset + 1 + i] = (byte)(line[i] - prior[i]);
+            } else {
+                raw[offset] = 1;
+                for (int i = 0; i < 4; i++)
+                    raw[offset + 1 + i] = line[i];
+                for (int i = 4; i < line.length; i++)
+                    raw[offset + 1 + i] = (byte)(line[i] - line[i - 4]);
+            }
+        }
+
+        private void grow() {
+            this.output = Arrays.copyOf(this.output, 2 * this.output.length);
+        }
+
+        /* ARGB ints to RGBA bytes */
+        private void unpack(int[] pixels, int offset, byte[] line) {
+
+            for (int x = 0; x < this.width; x++) {
+                int p = pixels[offset + x];
+                line[4 * x] = (byte)(p >> 16);
+                line[4 * x + 1] = (byte)(p >> 8);
+                line[4 * x + 2] = (byte)p;
+                line[4 * x + 3] = (byte)(p >>> 24);
+            }
+        }
+    }
+}
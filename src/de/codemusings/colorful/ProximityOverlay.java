@@ -0,0 +1,286 @@
+/* ProximityOverlay.java - Highlights the part of the SB plane close to a color
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.Arrays;
+
+import javafx.scene.image.ImageView;
+
+import javafx.scene.paint.Color;
+
+/* Veils every pixel of the SB plane farther than a threshold from a target
+ * color and outlines the rest. The Lab planes of the last few hues and
+ * zoomed views are kept along with their pixels, so dragging the hue back
+ * and forth only converts each hue once, and the full metric is evaluated
+ * only where its lightness bound cannot reject.
+ */
+final class ProximityOverlay {
+
+    private static final int CACHED_HUES = 8;
+    private static final int VEIL = 0x99000000;
+    private static final int OUTLINE = 0xE6FFFFFF;
+
+    private final PixelBuffer canvas;
+
+    /* most recently used first, the last one is reused on a miss */
+    private final Plane[] planes;
+    private DeltaE planeMetric;
+
+    private final double[] target;
+    private final double[] lab;
+    private double hue;
+    private double s0;
+    private double sStep;
+    private double b0;
+    private double bStep;
+    private Color color;
+    private DeltaE metric;
+    private double threshold;
+
+    ProximityOverlay(int width, int height) {
+
+        this.canvas = new PixelBuffer(width, height);
+        this.canvas.getView().setMouseTransparent(true);
+        this.planes = new Plane[CACHED_HUES];
+        this.target = new double[3];
+        this.lab = new double[3];
+    }
+
+    PixelBuffer getBuffer() {
+        return this.canvas;
+    }
+
+    ImageView getView() {
+        return this.canvas.getView();
+    }
+
+    /* a null color turns the overlay off */
+    void render(double hue, Color color, DeltaE metric, double threshold,
+                double s0, double sStep, double b0, double bStep) {
+
+        this.canvas.getView().setVisible(color != null);
+        if (color == null) {
+            this.canvas.release();
+            Arrays.fill(this.planes, null);
+            this.color = null;
+            return;
+        }
+
+        /* saturation and brightness changes leave the overlay alone */
+        boolean fresh = this.canvas.allocate();
+        boolean moved = hue != this.hue || s0 != this.s0 ||
+                        sStep != this.sStep || b0 != this.b0 ||
+                        bStep != this.bStep;
+        if (!fresh && !moved && color.equals(this.color) &&
+                metric == this.metric && threshold == this.threshold)
+            return;
+        if (metric != this.metric || !color.equals(this.color)) {
+            metric.toLab(
+                ColorMath.toLinear(color.getRed()),
+                ColorMath.toLinear(color.getGreen()),
+                ColorMath.toLinear(color.getBlue()),
+                this.target
+            );
+        }
+        this.hue = hue;
+        this.s0 = s0;
+        this.sStep = sStep;
+        this.b0 = b0;
+        this.bStep = bStep;
+        this.color = color;
+        this.metric = metric;
+        this.threshold = threshold;
+
+        int[] pixels = this.canvas.getPixels();
+        int w = this.canvas.getWidth();
+        int h = this.canvas.getHeight();
+        int n = w * h;
+
+        Plane plane = this.getPlane(metric);
+        float[] lab = plane.lab;
+        double tl = this.target[0];
+        double ta = this.target[1];
+        double tb = this.target[2];
+
+        /* the bound grows with the lightness difference either way, so it
+         * rejects everything outside one lightness interval */
+        float lo = (float)ProximityOverlay.bound(metric, tl, threshold, 0);
+        float hi = (float)ProximityOverlay.bound(metric, tl, threshold, 100);
+        for (int i = 0; i < n; i++) {
+            float l = lab[i];
+            if (l < lo || l > hi) {
+                pixels[i] = VEIL;
+                continue;
+            }
+            if (Float.isNaN(lab[n + i]))
+                this.convert(plane, i, metric);
+            double d = metric.distance(l, lab[n + i], lab[2 * n + i],
+                                       tl, ta, tb);
+            pixels[i] = d > threshold ? VEIL : 0;
+        }
+
+        /* outline the matching pixels that border a veiled one */
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                if (pixels[i] != 0)
+                    continue;
+                if ((x > 0 && pixels[i - 1] == VEIL) ||
+                        (x < w - 1 && pixels[i + 1] == VEIL) ||
+                        (y > 0 && pixels[i - w] == VEIL) ||
+                        (y < h - 1 && pixels[i + w] == VEIL))
+                    pixels[i] = OUTLINE;
+            }
+        }
+
+        this.canvas.flush();
+    }
+
+    /* the lightness between target and limit where the bound reaches the
+     * threshold, or the limit itself */
+    private static double bound(
+            DeltaE metric, double target, double threshold, double limit) {
+
+        if (metric.lowerBound(limit, target) <= threshold)
+            return limit;
+        double inside = target;
+        double outside = limit;
+        for (int i = 0; i < 32; i++) {
+            double l = (inside + outside) / 2;
+            if (metric.lowerBound(l, target) <= threshold)
+                inside = l;
+            else
+                outside = l;
+        }
+        return inside;
+    }
+
+    /* fills in a and b of a pixel the lightness bound did not reject */
+    private void convert(Plane plane, int i, DeltaE metric) {
+
+        float[] lab = plane.lab;
+        int n = plane.argb.length;
+        int argb = plane.argb[i];
+        metric.toLab(
+            ColorMath.decode((argb >> 16) & 0xFF),
+            ColorMath.decode((argb >> 8) & 0xFF),
+            ColorMath.decode(argb & 0xFF),
+            this.lab
+        );
+        lab[n + i] = (float)this.lab[1];
+        lab[2 * n + i] = (float)this.lab[2];
+    }
+
+    /* the pixels of the current view and their Lab values. Only L is
+     * converted up front, a and b are NaN until a pixel passes the
+     * lightness bound and are then converted from the plane's own pixels */
+    private Plane getPlane(DeltaE metric) {
+
+        if (metric != this.planeMetric) {
+            Arrays.fill(this.planes, null);
+            this.planeMetric = metric;
+        }
+        int last = this.planes.length - 1;
+        int i = 0;
+        while (i < last && this.planes[i] != null &&
+               !this.planes[i].shows(this))
+            i++;
+
+        Plane plane = this.planes[i];
+        if (plane == null || !plane.shows(this))
+            plane = this.compose(plane, metric);
+        System.arraycopy(this.planes, 0, this.planes, 1, i);
+        this.planes[0] = plane;
+        return plane;
+    }
+
+    /* composes the current view into a new plane or an evicted one */
+    private Plane compose(Plane plane, DeltaE metric) {
+
+        int w = this.canvas.getWidth();
+        int h = this.canvas.getHeight();
+        int n = w * h;
+        if (plane == null)
+            plane = new Plane(n);
+        plane.hue = this.hue;
+        plane.s0 = this.s0;
+        plane.sStep = this.sStep;
+        plane.b0 = this.b0;
+        plane.bStep = this.bStep;
+        SBCompositor.compose(
+            this.hue, plane.argb, 0, w, w, h,
+            this.s0, this.sStep, this.b0, this.bStep
+        );
+
+        float[] lab = plane.lab;
+        double[] c = this.lab;
+        for (int i = 0; i < n; i++) {
+            int argb = plane.argb[i];
+            boolean complete = metric.toLightness(
+                ColorMath.decode((argb >> 16) & 0xFF),
+                ColorMath.decode((argb >> 8) & 0xFF),
+                ColorMath.decode(argb & 0xFF),
+                c
+            );
+            lab[i] = (float)c[0];
+            lab[n + i] = complete ? (float)c[1] : Float.NaN;
+            lab[2 * n + i] = complete ? (float)c[2] : Float.NaN;
+        }
+        return plane;
+    }
+
+    /* a composed view and L, a and b of each of its pixels */
+    private static final class Plane {
+
+        private final int[] argb;
+        private final float[] lab;
+
+        private double hue;
+        private double s0;
+        private double sStep;
+        private double b0;
+        private double bStep;
+
+        private Plane(int size) {
+            this.argb = new int[size];
+            this.lab = new float[3 * size];
+        }
+
+        private boolean shows(ProximityOverlay view) {
+            return this.hue == view.hue && this.s0 == view.s0 &&
+                   this.sStep == view.sStep && this.b0 == view.b0 &&
+                   this.bStep == view.bStep;
+        }
+    }
+}
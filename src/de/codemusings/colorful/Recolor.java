@@ -0,0 +1,171 @@
+/* Recolor.java - Per-pixel recolor operations on packed images
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.paint.Color;
+
+public enum Recolor {
+
+    HUE_SHIFT("Hue Shift") {
+
+        @Override
+        int[] prepare(double hue, double sat, double bri, double opacity) {
+
+            /* luminance preserving rotation, 16 bit fixed point */
+            double c = Math.cos(Math.toRadians(hue));
+            double s = Math.sin(Math.toRadians(hue));
+            double[] m = {
+                0.213 + c * 0.787 - s * 0.213,
+                0.715 - c * 0.715 - s * 0.715,
+                0.072 - c * 0.072 + s * 0.928,
+                0.213 - c * 0.213 + s * 0.143,
+                0.715 + c * 0.285 + s * 0.140,
+                0.072 - c * 0.072 - s * 0.283,
+                0.213 - c * 0.213 - s * 0.787,
+                0.715 - c * 0.715 + s * 0.715,
+                0.072 + c * 0.928 + s * 0.072
+            };
+            int[] table = new int[m.length];
+            for (int i = 0; i < m.length; i++)
+                table[i] = (int)Math.round(m[i] * 65536);
+            return table;
+        }
+
+        @Override
+        void apply(int[] table, int[] src, int srcOffset,
+            int[] dst, int dstOffset, int length)
+        {
+
+            int m0 = table[0], m1 = table[1], m2 = table[2];
+            int m3 = table[3], m4 = table[4], m5 = table[5];
+            int m6 = table[6], m7 = table[7], m8 = table[8];
+            for (int i = 0; i < length; i++) {
+                int p = src[srcOffset + i];
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+                dst[dstOffset + i] = p & 0xFF000000 |
+                    clamp((m0 * r + m1 * g + m2 * b) >> 16) << 16 |
+                    clamp((m3 * r + m4 * g + m5 * b) >> 16) << 8 |
+                    clamp((m6 * r + m7 * g + m8 * b) >> 16);
+            }
+        }
+    },
+
+    COLORIZE("Colorize") {
+
+        @Override
+        int[] prepare(double hue, double sat, double bri, double opacity) {
+
+            /* maps the luma of a pixel to the picked hue and saturation */
+            int[] table = new int[256];
+            for (int i = 0; i < table.length; i++) {
+                Color c = Color.hsb(hue, sat, i / 255.0 * bri);
+                table[i] = ColorMath.argb(
+                    c.getRed(), c.getGreen(), c.getBlue(), 0.0
+                );
+            }
+            return table;
+        }
+
+        @Override
+        void apply(int[] table, int[] src, int srcOffset,
+            int[] dst, int dstOffset, int length)
+        {
+
+            for (int i = 0; i < length; i++) {
+                int p = src[srcOffset + i];
+                int luma = (77 * ((p >> 16) & 0xFF) +
+                            150 * ((p >> 8) & 0xFF) +
+                            29 * (p & 0xFF)) >> 8;
+                dst[dstOffset + i] = p & 0xFF000000 | table[luma];
+            }
+        }
+    },
+
+    TINT("Tint") {
+
+        @Override
+        int[] prepare(double hue, double sat, double bri, double opacity) {
+
+            /* blends every channel towards the picked color by its opacity */
+            Color c = Color.hsb(hue, sat, bri);
+            double[] target = { c.getRed(), c.getGreen(), c.getBlue() };
+            int[] table = new int[3 * 256];
+            for (int channel = 0; channel < 3; channel++) {
+                for (int i = 0; i < 256; i++) {
+                    double mixed = i * (1 - opacity) +
+                                   target[channel] * 255 * opacity;
+                    table[channel * 256 + i] = (int)Math.round(mixed);
+                }
+            }
+            return table;
+        }
+
+        @Override
+        void apply(int[] table, int[] src, int srcOffset,
+            int[] dst, int dstOffset, int length)
+        {
+
+            for (int i = 0; i < length; i++) {
+                int p = src[srcOffset + i];
+                dst[dstOffset + i] = p & 0xFF000000 |
+                    table[(p >> 16) & 0xFF] << 16 |
+                    table[256 + ((p >> 8) & 0xFF)] << 8 |
+                    table[512 + (p & 0xFF)];
+            }
+        }
+    };
+
+    private final String label;
+
+    private Recolor(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+
+    /* builds the lookup data for one set of picker values */
+    abstract int[] prepare(double hue, double sat, double bri, double opacity);
+
+    abstract void apply(int[] table, int[] src, int srcOffset,
+        int[] dst, int dstOffset, int length);
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
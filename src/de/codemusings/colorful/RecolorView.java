@@ -0,0 +1,381 @@
+/* RecolorView.java - A live recolor preview for reference images
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.io.File;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.PauseTransition;
+
+import javafx.application.Platform;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import javafx.beans.value.ChangeListener;
+
+import javafx.collections.FXCollections;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.ScrollPane;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+
+import javafx.stage.FileChooser;
+
+import javafx.util.Duration;
+
+public class RecolorView extends BorderPane {
+
+    private static final int TILE_SIZE = 128;
+    private static final int PREVIEW_SIZE = 512;
+    private static final Duration IDLE_DELAY = Duration.millis(150);
+
+    private final ObjectProperty<Double> hueProperty;
+    private final ObjectProperty<Double> saturationProperty;
+    private final ObjectProperty<Double> brightnessProperty;
+    private final ObjectProperty<Double> opacityProperty;
+    private final ObjectProperty<Recolor> recolorProperty;
+
+    private final ScrollPane scrollPane;
+    private final ImageView fullView;
+    private final ImageView previewView;
+    private final PauseTransition idleTimer;
+    private final ExecutorService executor;
+
+    /* decoded image and its downsampled copy used while dragging */
+    private int width, height;
+    private int[] source;
+    private int previewWidth, previewHeight;
+    private int[] previewSource, previewOutput;
+    private WritableImage fullImage, previewImage;
+
+    private int tileColumns, tileRows;
+    private boolean[] tileValid;
+    private boolean[] tileQueued;
+    private int[] table;
+    private int generation;
+    private boolean dragging;
+    private boolean previewRunning;
+
+    public RecolorView() {
+
+        this.hueProperty = new SimpleObjectProperty<>(0.0);
+        this.saturationProperty = new SimpleObjectProperty<>(0.0);
+        this.brightnessProperty = new SimpleObjectProperty<>(1.0);
+        this.opacityProperty = new SimpleObjectProperty<>(1.0);
+        this.recolorProperty = new SimpleObjectProperty<>(Recolor.HUE_SHIFT);
+
+        this.executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Colorful Recolor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+
+        /* tool bar */
+        Button open = new Button("Open Image...");
+        open.setOnAction(e -> this.chooseImage());
+        ChoiceBox<Recolor> choice = new ChoiceBox<>(
+            FXCollections.observableArrayList(Recolor.values())
+        );
+        choice.valueProperty().bindBidirectional(this.recolorProperty);
+        HBox toolBar = new HBox(10, open, choice);
+        toolBar.setPadding(new Insets(10));
+        super.setTop(toolBar);
+
+        /* the preview is scaled up below the full resolution image */
+        this.previewView = new ImageView();
+        this.fullView = new ImageView();
+        this.scrollPane = new ScrollPane(
+            new StackPane(this.previewView, this.fullView)
+        );
+        this.scrollPane.setPrefSize(640, 480);
+        super.setCenter(this.scrollPane);
+
+        this.idleTimer = new PauseTransition(IDLE_DELAY);
+        this.idleTimer.setOnFinished(e -> {
+            this.dragging = false;
+            this.renderVisibleTiles();
+        });
+
+        ChangeListener<Object> listener = (observable, oldValue, newValue) -> {
+            this.invalidate();
+        };
+        this.hueProperty.addListener(listener);
+        this.saturationProperty.addListener(listener);
+        this.brightnessProperty.addListener(listener);
+        this.opacityProperty.addListener(listener);
+        this.recolorProperty.addListener(listener);
+
+        ChangeListener<Object> scrolled = (observable, oldValue, newValue) -> {
+            this.renderVisibleTiles();
+        };
+        this.scrollPane.hvalueProperty().addListener(scrolled);
+        this.scrollPane.vvalueProperty().addListener(scrolled);
+        this.scrollPane.viewportBoundsProperty().addListener(scrolled);
+    }
+
+    public ObjectProperty<Double> brightnessProperty() {
+        return this.brightnessProperty;
+    }
+
+    public void dispose() {
+        this.idleTimer.stop();
+        this.executor.shutdownNow();
+    }
+
+    public ObjectProperty<Double> hueProperty() {
+        return this.hueProperty;
+    }
+
+    public void load(Image image) {
+
+        PixelReader reader = image.getPixelReader();
+        if (image.isError() || reader == null) {
+            Exception e = image.getException();
+            new Alert(
+                Alert.AlertType.ERROR,
+                "Could not load image" +
+                (e != null && e.getMessage() != null
+                 ? ": " + e.getMessage() : ".")
+            ).show();
+            return;
+        }
+
+        this.width = (int)image.getWidth();
+        this.height = (int)image.getHeight();
+        this.source = new int[this.width * this.height];
+        reader.getPixels(
+            0, 0, this.width, this.height,
+            PixelFormat.getIntArgbInstance(), this.source, 0, this.width
+        );
+
+        /* nearest neighbour downsampling is good enough while dragging */
+        int scale = Math.max(1, Math.max(
+            (this.width + PREVIEW_SIZE - 1) / PREVIEW_SIZE,
+            (this.height + PREVIEW_SIZE - 1) / PREVIEW_SIZE
+        ));
+        this.previewWidth = Math.max(1, this.width / scale);
+        this.previewHeight = Math.max(1, this.height / scale);
+        this.previewSource = new int[this.previewWidth * this.previewHeight];
+        this.previewOutput = new int[this.previewSource.length];
+        for (int y = 0; y < this.previewHeight; y++) {
+            for (int x = 0; x < this.previewWidth; x++) {
+                this.previewSource[y * this.previewWidth + x] =
+                    this.source[y * scale * this.width + x * scale];
+            }
+        }
+
+        this.fullImage = new WritableImage(this.width, this.height);
+        this.previewImage = new WritableImage(
+            this.previewWidth, this.previewHeight
+        );
+        this.fullView.setImage(this.fullImage);
+        this.previewView.setImage(this.previewImage);
+        this.previewView.setFitWidth(this.width);
+        this.previewView.setFitHeight(this.height);
+
+        this.tileColumns = (this.width + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileRows = (this.height + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileValid = new boolean[this.tileColumns * this.tileRows];
+        this.tileQueued = new boolean[this.tileValid.length];
+
+        this.invalidate();
+    }
+
+    public ObjectProperty<Double> opacityValueProperty() {
+        return this.opacityProperty;
+    }
+
+    public ObjectProperty<Recolor> recolorProperty() {
+        return this.recolorProperty;
+    }
+
+    public ObjectProperty<Double> saturationProperty() {
+        return this.saturationProperty;
+    }
+
+    private void chooseImage() {
+
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+            "Images", "*.png", "*.jpg", "*.jpeg", "*.gif", "*.bmp"
+        ));
+        File file = chooser.showOpenDialog(super.getScene().getWindow());
+        if (file != null)
+            this.load(new Image(file.toURI().toString()));
+    }
+
+    private void invalidate() {
+
+        if (this.source == null)
+            return;
+
+        this.generation++;
+        this.table = this.recolorProperty.getValue().prepare(
+            this.hueProperty.getValue(),
+            this.saturationProperty.getValue(),
+            this.brightnessProperty.getValue(),
+            this.opacityProperty.getValue()
+        );
+        Arrays.fill(this.tileValid, false);
+        Arrays.fill(this.tileQueued, false);
+
+        this.dragging = true;
+        this.renderPreview();
+        this.idleTimer.playFromStart();
+    }
+
+    /* at most one preview is rendered at a time, newer values coalesce */
+    private void renderPreview() {
+
+        if (this.previewRunning)
+            return;
+        this.previewRunning = true;
+
+        /* a load while this runs swaps all of these for new ones */
+        int current = this.generation;
+        int[] table = this.table;
+        Recolor recolor = this.recolorProperty.getValue();
+        int[] source = this.previewSource;
+        int[] output = this.previewOutput;
+        int width = this.previewWidth;
+        int height = this.previewHeight;
+        WritableImage image = this.previewImage;
+        this.executor.execute(() -> {
+            boolean[] done = { false };
+            try {
+                recolor.apply(table, source, 0, output, 0, source.length);
+                done[0] = true;
+            } finally {
+                Platform.runLater(() -> {
+                    try {
+                        if (done[0] && image == this.previewImage) {
+                            image.getPixelWriter().setPixels(
+                                0, 0, width, height,
+                                PixelFormat.getIntArgbInstance(),
+                                output, 0, width
+                            );
+                            this.fullView.setVisible(false);
+                        }
+                    } finally {
+                        this.previewRunning = false;
+                    }
+                    if (current != this.generation)
+                        this.renderPreview();
+                });
+            }
+        });
+    }
+
+    /* renders the full resolution tiles intersecting the viewport */
+    private void renderVisibleTiles() {
+
+        if (this.source == null || this.dragging)
+            return;
+
+        Bounds viewport = this.scrollPane.getViewportBounds();
+        double x = Math.max(0, (this.width - viewport.getWidth()) *
+                               this.scrollPane.getHvalue());
+        double y = Math.max(0, (this.height - viewport.getHeight()) *
+                               this.scrollPane.getVvalue());
+        int column0 = (int)(x / TILE_SIZE);
+        int row0 = (int)(y / TILE_SIZE);
+        int column1 = Math.min(this.tileColumns - 1,
+            (int)((x + viewport.getWidth()) / TILE_SIZE));
+        int row1 = Math.min(this.tileRows - 1,
+            (int)((y + viewport.getHeight()) / TILE_SIZE));
+
+        int current = this.generation;
+        int[] table = this.table;
+        Recolor recolor = this.recolorProperty.getValue();
+        int[] pending = { 0 };
+
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int tile = row * this.tileColumns + column;
+                if (this.tileValid[tile] || this.tileQueued[tile])
+                    continue;
+                this.tileQueued[tile] = true;
+                pending[0]++;
+
+                int tx = column * TILE_SIZE;
+                int ty = row * TILE_SIZE;
+                int tw = Math.min(TILE_SIZE, this.width - tx);
+                int th = Math.min(TILE_SIZE, this.height - ty);
+                this.executor.execute(() -> {
+                    int[] pixels = new int[tw * th];
+                    for (int i = 0; i < th; i++) {
+                        recolor.apply(
+                            table, this.source, (ty + i) * this.width + tx,
+                            pixels, i * tw, tw
+                        );
+                    }
+                    Platform.runLater(() -> {
+                        if (current != this.generation)
+                            return;
+                        this.fullImage.getPixelWriter().setPixels(
+                            tx, ty, tw, th, PixelFormat.getIntArgbInstance(),
+                            pixels, 0, tw
+                        );
+                        this.tileValid[tile] = true;
+                        if (--pending[0] == 0)
+                            this.fullView.setVisible(true);
+                    });
+                });
+            }
+        }
+        if (pending[0] == 0)
+            this.fullView.setVisible(true);
+    }
+}
@@ -0,0 +1,187 @@
+/* RenderCache.java - Shared images rendered by controls.
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/* Process wide cache of images that depend only on a control type, a size
+ * and a few inputs, like the hue strip or the SB plane of one hue. Every
+ * control showing the same key shares one image, which is never written
+ * after it is rendered. Images are reference counted, those no longer
+ * referenced are kept up to colorful.renderCache bytes and evicted least
+ * recently released first. Markers are not part of the images.
+ */
+final class RenderCache {
+
+    private static final long LIMIT = Long.getLong(
+        "colorful.renderCache", 16L * 1024 * 1024
+    );
+
+    private static final Map<Key, Entry> entries = new HashMap<>();
+    private static final Map<Key, Entry> unused = new LinkedHashMap<>();
+    private static long unusedBytes;
+
+    private RenderCache() {
+    }
+
+    /* returns the image for the key, rendering it with the painter if no
+     * control holds it yet, and must be paired with release */
+    static Image acquire(Key key, Painter painter) {
+
+        Image image = RenderCache.reference(key);
+        if (image != null)
+            return image;
+
+        /* rendered outside of the lock, a concurrent miss on the same key
+         * renders twice but keeps the first image */
+        int[] pixels = new int[key.width * key.height];
+        painter.paint(pixels, key.width, key.height);
+        WritableImage rendered = new WritableImage(key.width, key.height);
+        rendered.getPixelWriter().setPixels(
+            0, 0, key.width, key.height, PixelFormat.getIntArgbInstance(),
+            pixels, 0, key.width
+        );
+        return RenderCache.insert(key, rendered);
+    }
+
+    /* returns the image for the key only if it is already rendered, a
+     * result other than null must be paired with release */
+    static Image acquireCached(Key key) {
+        return RenderCache.reference(key);
+    }
+
+    static synchronized void release(Key key) {
+
+        Entry entry = RenderCache.entries.get(key);
+        if (entry == null || --entry.references > 0)
+            return;
+
+        RenderCache.unused.put(key, entry);
+        RenderCache.unusedBytes += entry.getByteCount();
+        Iterator<Map.Entry<Key, Entry>> i =
+            RenderCache.unused.entrySet().iterator();
+        while (RenderCache.unusedBytes > LIMIT && i.hasNext()) {
+            Map.Entry<Key, Entry> eldest = i.next();
+            i.remove();
+            RenderCache.entries.remove(eldest.getKey());
+            RenderCache.unusedBytes -= eldest.getValue().getByteCount();
+        }
+    }
+
+    private static synchronized Image insert(Key key, Image image) {
+
+        Image existing = RenderCache.reference(key);
+        if (existing != null)
+            return existing;
+        Entry entry = new Entry(image);
+        entry.references = 1;
+        RenderCache.entries.put(key, entry);
+        return image;
+    }
+
+    private static synchronized Image reference(Key key) {
+
+        Entry entry = RenderCache.entries.get(key);
+        if (entry == null)
+            return null;
+        if (entry.references++ == 0) {
+            RenderCache.unused.remove(key);
+            RenderCache.unusedBytes -= entry.getByteCount();
+        }
+        return entry.image;
+    }
+
+    interface Painter {
+        void paint(int[] pixels, int width, int height);
+    }
+
+    static final class Key {
+
+        private final Class<?> type;
+        private final int width;
+        private final int height;
+        private final Object[] inputs;
+
+        Key(Class<?> type, int width, int height, Object... inputs) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key)o;
+            return this.type == other.type &&
+                   this.width == other.width &&
+                   this.height == other.height &&
+                   Arrays.equals(this.inputs, other.inputs);
+        }
+
+        @Override
+        public int hashCode() {
+
+            int h = this.type.hashCode();
+            h = 31 * h + this.width;
+            h = 31 * h + this.height;
+            return 31 * h + Arrays.hashCode(this.inputs);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Image image;
+        private int references;
+
+        Entry(Image image) {
+            this.image = image;
+        }
+
+        long getByteCount() {
+            return 4L * (long)this.image.getWidth() *
+                   (long)this.image.getHeight();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/* SBCompositor.java - Separable saturation/brightness plane compositor
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.scene.paint.Color;
+
+/* Composes the saturation/brightness plane for a given hue. At a fixed hue
+ * every channel is b * (1 - s + s * hue) = b + b * s * (hue - 1), so two
+ * planes holding b and b * s are computed once per size and a redraw only
+ * needs three multiply-adds per pixel.
+ */
+final class SBCompositor {
+
+    private final int width;
+    private final int height;
+
+    /* both planes are scaled to 0..255, b also carries the rounding bias */
+    private final float[] b;
+    private final float[] bs;
+
+    SBCompositor(int width, int height) {
+
+        this.width = width;
+        this.height = height;
+        this.b = new float[width * height];
+        this.bs = new float[width * height];
+
+        for (int y = 0; y < height; y++) {
+            double brightness = (height - 1 - y) / (double)(height - 1);
+            for (int x = 0; x < width; x++) {
+                double saturation = x / (double)(width - 1);
+                this.b[y * width + x] = (float)(brightness * 255 + 0.5);
+                this.bs[y * width + x] = (float)(
+                    brightness * saturation * 255
+                );
+            }
+        }
+    }
+
+    void compose(double hue, int[] pixels) {
+        this.compose(hue, pixels, 0, this.height);
+    }
+
+    /* fills the rows [startRow, endRow) of a width * height buffer */
+    void compose(double hue, int[] pixels, int startRow, int endRow) {
+
+        Color c = Color.hsb(hue, 1.0, 1.0);
+        float kr = (float)(c.getRed() - 1.0);
+        float kg = (float)(c.getGreen() - 1.0);
+        float kb = (float)(c.getBlue() - 1.0);
+
+        float[] b = this.b;
+        float[] bs = this.bs;
+        int end = endRow * this.width;
+        for (int i = startRow * this.width; i < end; i++) {
+            float v = b[i];
+            float d = bs[i];
+            pixels[i] = 0xFF000000 |
+                        (int)(v + d * kr) << 16 |
+                        (int)(v + d * kg) << 8 |
+                        (int)(v + d * kb);
+        }
+    }
+
+    /* composes any block of the plane, used when zoomed in: pixel (x, y)
+     * of the block gets saturation s0 + x * sStep and brightness
+     * b0 - y * bStep */
+    static void compose(
+            double hue, int[] pixels, int offset, int stride, int w, int h,
+            double s0, double sStep, double b0, double bStep) {
+
+        Color c = Color.hsb(hue, 1.0, 1.0);
+        float kr = (float)(c.getRed() - 1.0);
+        float kg = (float)(c.getGreen() - 1.0);
+        float kb = (float)(c.getBlue() - 1.0);
+
+        for (int y = 0; y < h; y++) {
+            double b = Math.max(0, Math.min(1, b0 - y * bStep));
+            float v = (float)(b * 255 + 0.5);
+            int row = offset + y * stride;
+            for (int x = 0; x < w; x++) {
+                double s = Math.max(0, Math.min(1, s0 + x * sStep));
+                float d = (float)(b * s * 255);
+                pixels[row + x] = 0xFF000000 |
+                                  (int)(v + d * kr) << 16 |
+                                  (int)(v + d * kg) << 8 |
+                                  (int)(v + d * kb);
+            }
+        }
+    }
+}
@@ -31,9 +31,12 @@
  * POSSIBILITY OF SUCH DAMAGE.
  */
 
-
 package de.codemusings.colorful;
 
+import java.util.Arrays;
+
+import javafx.animation.PauseTransition;
+
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
@@ -41,23 +44,61 @@ import javafx.beans.value.ChangeListener;
 
 import javafx.event.EventHandler;
 
-import javafx.scene.input.MouseEvent;
+import javafx.scene.Node;
+
+import javafx.scene.effect.BlendMode;
 
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+
+import javafx.scene.layout.Border;
+import javafx.scene.layout.BorderStroke;
+import javafx.scene.layout.BorderStrokeStyle;
+import javafx.scene.layout.BorderWidths;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
 
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import javafx.util.Duration;
 
 public class SBPickerControl extends Pane {
 
+    /* 2^(16 / 2) = 256 times, about 0.002% per pixel */
+    private static final int MAX_LEVEL = 16;
+
+    /* how long a hue has to stay before its plane is shared */
+    private static final Duration SHARE_DELAY = Duration.millis(250);
+
     private final ObjectProperty<Double> hueProperty;
     private final ObjectProperty<Double> saturationProperty;
     private final ObjectProperty<Double> brightnessProperty;
-
-    private final WritableImage canvas;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
+    private final ObjectProperty<Color> matchColorProperty;
+    private final ObjectProperty<DeltaE> matchMetricProperty;
+    private final ObjectProperty<Double> matchThresholdProperty;
+
+    private final Renderer backend;
+    private final ProximityOverlay overlay;
+    private final LazyRenderer renderer;
+
+    /* the zoom is 2^(level / 2), the origin is the plane pixel shown at the
+     * top left of the view */
+    private final int width;
+    private final int height;
+    private int level;
+    private long originX;
+    private long originY;
+
+    private double panX;
+    private double panY;
+    private long panOriginX;
+    private long panOriginY;
 
     public SBPickerControl() {
         this(200, 200);
@@ -71,13 +112,39 @@ public class SBPickerControl extends Pane {
         this.hueProperty = new SimpleObjectProperty<>(0.0);
         this.saturationProperty = new SimpleObjectProperty<>(0.0);
         this.brightnessProperty = new SimpleObjectProperty<>(1.0);
-
-        this.canvas = new WritableImage((int)width - 2, (int)height - 2);
-        this.updateCanvas();
-        ImageView view = new ImageView(this.canvas);
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
+        this.matchColorProperty = new SimpleObjectProperty<>();
+        this.matchMetricProperty = new SimpleObjectProperty<>(
+            DeltaE.CIEDE2000
+        );
+        this.matchThresholdProperty = new SimpleObjectProperty<>(2.3);
+
+        int w = (int)width - 2;
+        int h = (int)height - 2;
+        this.width = w;
+        this.height = h;
+        if (RenderBackend.get() == RenderBackend.GRADIENT)
+            this.backend = new GradientRenderer(w, h);
+        else
+            this.backend = new PixelRenderer(w, h);
+        Node view = this.backend.getNode();
         super.getChildren().add(view);
         view.relocate(1, 1);
 
+        /* the overlay ignores the mouse, input goes to the plane */
+        this.overlay = new ProximityOverlay(w, h);
+        super.getChildren().add(this.overlay.getView());
+        this.overlay.getView().relocate(1, 1);
+
+        PixelBuffer[] buffers = this.backend.getBuffers();
+        buffers = Arrays.copyOf(buffers, buffers.length + 1);
+        buffers[buffers.length - 1] = this.overlay.getBuffer();
+        this.renderer = new LazyRenderer(
+            this, this::updateCanvas, this.backend::release, buffers
+        );
+
         final SBPickerControl control = this;
         EventHandler<MouseEvent> handler = new EventHandler<MouseEvent>() {
 
@@ -86,90 +153,402 @@ public class SBPickerControl extends Pane {
 
                 double x, y;
 
+                /* the secondary button pans, a double click zooms out */
+                if (e.isSecondaryButtonDown()) {
+                    control.pan(e.getX(), e.getY());
+                    return;
+                }
+                if (e.getButton() == MouseButton.SECONDARY) {
+                    if (e.getClickCount() == 2)
+                        control.resetZoom();
+                    return;
+                }
+
                 if (e.getX() < 0)
                     x = 0;
-                else if (e.getX() > canvas.getWidth() - 1)
-                    x = canvas.getWidth() - 1;
+                else if (e.getX() > w - 1)
+                    x = w - 1;
                 else
                     x = e.getX();
 
                 if (e.getY() < 0)
                     y = 0;
-                else if (e.getY() > canvas.getHeight() - 1)
-                    y = canvas.getHeight() - 1;
+                else if (e.getY() > h - 1)
+                    y = h - 1;
                 else
                     y = e.getY();
 
-                double w = canvas.getWidth();
-                double h = canvas.getHeight();
-
-                control.saturationProperty.setValue(x / (w - 1));
-                control.brightnessProperty.setValue((h - 1 - y) / (h - 1));
-
-                control.updateCanvas();
+                control.select(x, y);
             }
         };
         view.setOnMouseClicked(handler);
         view.setOnMouseDragged(handler);
+        view.setOnMousePressed((MouseEvent e) -> {
+            this.panX = e.getX();
+            this.panY = e.getY();
+            this.panOriginX = this.originX;
+            this.panOriginY = this.originY;
+        });
+        view.setOnScroll((ScrollEvent e) -> {
+            if (e.getDeltaY() != 0)
+                this.zoom(e.getDeltaY() > 0 ? 1 : -1, e.getX(), e.getY());
+        });
 
         ChangeListener<Double> listener = (observable, oldValue, newValue) -> {
-                this.updateCanvas();
+                this.renderer.invalidate();
         };
         this.brightnessProperty.addListener(listener);
         this.hueProperty.addListener(listener);
         this.saturationProperty.addListener(listener);
+        this.matchThresholdProperty.addListener(listener);
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.renderer.invalidate();
+            }
+        );
+        this.matchColorProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.renderer.invalidate();
+            }
+        );
+        this.matchMetricProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                this.renderer.invalidate();
+            }
+        );
     }
 
     public ObjectProperty<Double> brightnessProperty() {
         return this.brightnessProperty;
     }
 
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
+    public double getZoom() {
+        return Math.pow(2, this.level / 2.0);
+    }
+
     public ObjectProperty<Double> hueProperty() {
         return this.hueProperty;
     }
 
+    /* highlights the part of the plane close to this color, if set */
+    public ObjectProperty<Color> matchColorProperty() {
+        return this.matchColorProperty;
+    }
+
+    public ObjectProperty<DeltaE> matchMetricProperty() {
+        return this.matchMetricProperty;
+    }
+
+    public ObjectProperty<Double> matchThresholdProperty() {
+        return this.matchThresholdProperty;
+    }
+
+    public void resetZoom() {
+
+        this.level = 0;
+        this.originX = 0;
+        this.originY = 0;
+        this.renderer.invalidate();
+    }
+
     public ObjectProperty<Double> saturationProperty() {
         return this.saturationProperty;
     }
 
+    /* keeps the view inside the plane */
+    private void clampOrigin() {
+
+        this.originX = Math.max(
+            0, Math.min(this.originX, this.getSpanX() + 1 - this.width)
+        );
+        this.originY = Math.max(
+            0, Math.min(this.originY, this.getSpanY() + 1 - this.height)
+        );
+    }
+
+    /* the marker position in view pixels, possibly outside the view */
+    private double getMarkerX() {
+        return this.saturationProperty.getValue() * this.getSpanX() -
+               this.originX;
+    }
+
+    private double getMarkerY() {
+        return (1 - this.brightnessProperty.getValue()) * this.getSpanY() -
+               this.originY;
+    }
+
+    /* plane pixels from zero to full saturation or brightness */
+    private long getSpanX() {
+        return Math.round((this.width - 1) * this.getZoom());
+    }
+
+    private long getSpanY() {
+        return Math.round((this.height - 1) * this.getZoom());
+    }
+
+    private void pan(double x, double y) {
+
+        this.originX = this.panOriginX - Math.round(x - this.panX);
+        this.originY = this.panOriginY - Math.round(y - this.panY);
+        this.clampOrigin();
+        this.renderer.invalidate();
+    }
+
+    /* selects the color under a view position without rounding it to a
+     * plane pixel */
+    private void select(double x, double y) {
+
+        double s = (this.originX + x) / this.getSpanX();
+        double b = 1 - (this.originY + y) / this.getSpanY();
+        this.saturationProperty.setValue(Math.max(0, Math.min(1, s)));
+        this.brightnessProperty.setValue(Math.max(0, Math.min(1, b)));
+    }
+
+    /* zooms in or out by steps of sqrt(2), keeping the color under the
+     * given view position in place */
+    private void zoom(int steps, double x, double y) {
+
+        int level = Math.max(0, Math.min(MAX_LEVEL, this.level + steps));
+        if (level == this.level)
+            return;
+        double s = (this.originX + x) / this.getSpanX();
+        double b = (this.originY + y) / this.getSpanY();
+        this.level = level;
+        this.originX = Math.round(s * this.getSpanX() - x);
+        this.originY = Math.round(b * this.getSpanY() - y);
+        this.clampOrigin();
+        this.renderer.invalidate();
+    }
+
     private void updateCanvas() {
 
-        double w = this.canvas.getWidth();
-        double h = this.canvas.getHeight();
-
-        PixelWriter writer = this.canvas.getPixelWriter();
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                double saturation = x / (w - 1);
-                double brightness = (h - 1 - y) / (h - 1);
-                writer.setColor(x, y, Color.hsb(
-                    this.hueProperty.getValue(),
-                    saturation,
-                    brightness
-                ));
-            }
-        }
+        this.backend.render();
+
+        long spanX = this.getSpanX();
+        long spanY = this.getSpanY();
+        this.overlay.render(
+            this.hueProperty.getValue(),
+            this.matchColorProperty.getValue(),
+            this.matchMetricProperty.getValue(),
+            this.matchThresholdProperty.getValue(),
+            this.originX / (double)spanX, 1.0 / spanX,
+            1 - this.originY / (double)spanY, 1.0 / spanY
+        );
+    }
 
+    private void updateMarker(Region marker) {
+
+        ColorVision vision = this.colorVisionProperty.getValue();
+        double hue = this.hueProperty.getValue();
         double s = this.saturationProperty.getValue();
         double b = this.brightnessProperty.getValue();
-        int x = (int)Math.round(s * (w - 1) / 1.0);
-        int y = (int)(h - 1) - (int)Math.round(b * (h - 1) / 1.0);
-        int[][] rectangle = {
-            {x - 1, y - 1}, {x, y - 1}, {x + 1, y - 1},
-            {x - 1, y},                 {x + 1, y},
-            {x - 1, y + 1}, {x, y + 1}, {x + 1, y + 1}
-        };
-        Color color = this.canvas.getPixelReader().getColor(x, y).invert();
-        for (int i = 0; i < rectangle.length; i++) {
-            if (rectangle[i][0] < 0)
-                continue;
-            if (rectangle[i][1] < 0)
-                continue;
-            if (rectangle[i][0] > this.canvas.getWidth() - 1)
-                continue;
-            if (rectangle[i][1] > this.canvas.getHeight() - 1)
-                continue;
-            writer.setColor(rectangle[i][0], rectangle[i][1], color);
+
+        long x = Math.round(this.getMarkerX());
+        long y = Math.round(this.getMarkerY());
+        Color color = vision.filter(Color.hsb(hue, s, b)).invert();
+        marker.setBorder(new Border(new BorderStroke(
+            color, BorderStrokeStyle.SOLID, null, new BorderWidths(1)
+        )));
+        marker.setVisible(
+            x >= 0 && x < this.width && y >= 0 && y < this.height
+        );
+        marker.relocate(x - 1, y - 1);
+    }
+
+    /* white to hue across, multiplied by white to black down */
+    private final class GradientRenderer implements Renderer {
+
+        private final Pane pane;
+        private final Region hue;
+        private final Region shade;
+        private final Region marker;
+
+        GradientRenderer(int width, int height) {
+
+            this.pane = GradientLayers.newPane(width, height);
+            this.pane.setBlendMode(BlendMode.SRC_OVER);
+            this.hue = GradientLayers.newRegion(width, height);
+            this.shade = GradientLayers.newRegion(width, height);
+            this.shade.setBlendMode(BlendMode.MULTIPLY);
+
+            this.marker = GradientLayers.newRegion(3, 3);
+            this.pane.getChildren().addAll(this.hue, this.shade, this.marker);
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void render() {
+
+            SBPickerControl control = SBPickerControl.this;
+            ColorVision vision = control.colorVisionProperty.getValue();
+            double hue = control.hueProperty.getValue();
+
+            /* zooming stretches the gradients, their ends may lie outside
+             * the view, and the filter is applied to the ends only */
+            double x0 = 0.5 - control.originX;
+            double y0 = 0.5 - control.originY;
+            GradientLayers.setFill(this.hue, GradientLayers.horizontal(
+                x0, x0 + control.getSpanX(),
+                new Stop(0, vision.filter(Color.WHITE)),
+                new Stop(1, vision.filter(Color.hsb(hue, 1.0, 1.0)))
+            ));
+            GradientLayers.setFill(this.shade, GradientLayers.vertical(
+                y0, y0 + control.getSpanY(),
+                new Stop(0, Color.WHITE), new Stop(1, Color.BLACK)
+            ));
+
+            control.updateMarker(this.marker);
+        }
+    }
+
+    /* Unzoomed planes already in the render cache are shared. Others are
+     * composed into the picker's own buffer, which allocates nothing while
+     * the hue is dragged, and only published to the cache once the hue
+     * has stayed put for SHARE_DELAY. Zoomed views are tiled into the same
+     * buffer */
+    private final class PixelRenderer implements Renderer {
+
+        private final int width;
+        private final int height;
+        private final Pane pane;
+        private final ImageView plane;
+        private final PixelBuffer canvas;
+        private final Region marker;
+        private final SBTileCache tiles;
+        private final PauseTransition shareTimer;
+
+        private SBCompositor compositor;
+        private RenderCache.Key key;
+        private RenderCache.Key composed;
+
+        PixelRenderer(int width, int height) {
+
+            this.width = width;
+            this.height = height;
+            this.pane = GradientLayers.newPane(width, height);
+            this.plane = new ImageView();
+            this.canvas = new PixelBuffer(width, height);
+            this.marker = GradientLayers.newRegion(3, 3);
+            this.tiles = new SBTileCache();
+            this.shareTimer = new PauseTransition(SHARE_DELAY);
+            this.shareTimer.setOnFinished(e -> this.share());
+            this.pane.getChildren().addAll(
+                this.plane, this.canvas.getView(), this.marker
+            );
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[] { this.canvas };
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void release() {
+
+            this.shareTimer.stop();
+            this.composed = null;
+            if (this.key == null)
+                return;
+            RenderCache.release(this.key);
+            this.key = null;
+            this.plane.setImage(null);
+        }
+
+        @Override
+        public void render() {
+
+            SBPickerControl control = SBPickerControl.this;
+            ColorVision vision = control.colorVisionProperty.getValue();
+            double hue = control.hueProperty.getValue();
+            if (control.level == 0) {
+                RenderCache.Key key = new RenderCache.Key(
+                    SBPickerControl.class, this.width, this.height, hue, vision
+                );
+                if (key.equals(this.key) || (key.equals(this.composed) &&
+                        this.canvas.isAllocated())) {
+                    control.updateMarker(this.marker);
+                    return;
+                }
+                Image image = RenderCache.acquireCached(key);
+                this.release();
+                if (image != null) {
+                    this.key = key;
+                    this.plane.setImage(image);
+                    this.canvas.getView().setVisible(false);
+                    this.shareTimer.playFromStart();
+                } else {
+                    this.canvas.allocate();
+                    this.paint(this.canvas.getPixels(), hue, vision);
+                    this.canvas.flush();
+                    this.canvas.getView().setVisible(true);
+                    this.composed = key;
+                    this.shareTimer.playFromStart();
+                }
+            } else {
+                this.release();
+                this.canvas.allocate();
+                int[] pixels = this.canvas.getPixels();
+                this.tiles.draw(
+                    hue, control.level,
+                    control.getSpanX(), control.getSpanY(),
+                    control.originX, control.originY,
+                    pixels, this.width, this.height
+                );
+                vision.filter(pixels, 0, pixels.length);
+                this.canvas.flush();
+                this.canvas.getView().setVisible(true);
+            }
+
+            control.updateMarker(this.marker);
+        }
+
+        /* the planes are only built once this picker misses the cache */
+        private void paint(int[] pixels, double hue, ColorVision vision) {
+
+            if (this.compositor == null)
+                this.compositor = new SBCompositor(this.width, this.height);
+            this.compositor.compose(hue, pixels);
+            vision.filter(pixels, 0, pixels.length);
+        }
+
+        /* publishes a settled plane of its own, then drops the buffer it
+         * was composed in */
+        private void share() {
+
+            RenderCache.Key key = this.composed;
+            if (key != null && this.canvas.isAllocated()) {
+                int[] composed = this.canvas.getPixels();
+                Image image = RenderCache.acquire(
+                    key, (pixels, w, h) -> System.arraycopy(
+                        composed, 0, pixels, 0, pixels.length
+                    )
+                );
+                this.composed = null;
+                this.key = key;
+                this.plane.setImage(image);
+            }
+            if (this.key != null) {
+                this.canvas.getView().setVisible(false);
+                this.canvas.release();
+            }
         }
     }
 }
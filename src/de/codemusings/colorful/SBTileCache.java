@@ -0,0 +1,152 @@
+/* SBTileCache.java - Tiles of the zoomed SB plane
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Holds the most recently used tiles of the zoomed plane. A tile is keyed
+ * by hue, zoom level and position, so panning back or dragging the hue
+ * back and forth reuses it. Tiles hold unfiltered colors, the color vision
+ * filter runs over the assembled view.
+ */
+final class SBTileCache {
+
+    static final int TILE = 64;
+
+    private static final int CAPACITY = 96;
+
+    private final Map<Key, int[]> tiles;
+    private int[] spare;
+
+    SBTileCache() {
+
+        this.tiles = new LinkedHashMap<Key, int[]>(128, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+
+                if (this.size() <= CAPACITY)
+                    return false;
+                SBTileCache.this.spare = eldest.getValue();
+                return true;
+            }
+        };
+    }
+
+    /* fills a w * h view whose top left pixel is (originX, originY) of a
+     * plane spanning spanX by spanY pixels at the given level */
+    void draw(double hue, int level, long spanX, long spanY,
+              long originX, long originY, int[] pixels, int w, int h) {
+
+        long firstX = originX / TILE;
+        long firstY = originY / TILE;
+        long lastX = (originX + w - 1) / TILE;
+        long lastY = (originY + h - 1) / TILE;
+
+        for (long ty = firstY; ty <= lastY; ty++) {
+            for (long tx = firstX; tx <= lastX; tx++) {
+                int[] tile = this.getTile(hue, level, spanX, spanY, tx, ty);
+
+                /* the part of the tile inside the view */
+                int x0 = (int)Math.max(0, tx * TILE - originX);
+                int y0 = (int)Math.max(0, ty * TILE - originY);
+                int x1 = (int)Math.min(w, (tx + 1) * TILE - originX);
+                int y1 = (int)Math.min(h, (ty + 1) * TILE - originY);
+                int u = (int)(originX + x0 - tx * TILE);
+                int v = (int)(originY + y0 - ty * TILE);
+                for (int y = y0; y < y1; y++) {
+                    System.arraycopy(
+                        tile, (v + y - y0) * TILE + u,
+                        pixels, y * w + x0, x1 - x0
+                    );
+                }
+            }
+        }
+    }
+
+    private int[] getTile(double hue, int level, long spanX, long spanY,
+                          long tx, long ty) {
+
+        Key key = new Key(hue, level, tx, ty);
+        int[] tile = this.tiles.get(key);
+        if (tile != null)
+            return tile;
+
+        tile = this.spare != null ? this.spare : new int[TILE * TILE];
+        this.spare = null;
+        SBCompositor.compose(
+            hue, tile, 0, TILE, TILE, TILE,
+            tx * TILE / (double)spanX, 1.0 / spanX,
+            1 - ty * TILE / (double)spanY, 1.0 / spanY
+        );
+        this.tiles.put(key, tile);
+        return tile;
+    }
+
+    private static final class Key {
+
+        private final double hue;
+        private final int level;
+        private final long x;
+        private final long y;
+
+        Key(double hue, int level, long x, long y) {
+            this.hue = hue;
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return k.hue == this.hue && k.level == this.level &&
+                   k.x == this.x && k.y == this.y;
+        }
+
+        @Override
+        public int hashCode() {
+
+            long h = Double.doubleToLongBits(this.hue);
+            h = h * 31 + this.level;
+            h = h * 31 + this.x;
+            h = h * 31 + this.y;
+            return (int)(h ^ h >>> 32);
+        }
+    }
+}
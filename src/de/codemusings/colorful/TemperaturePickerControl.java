@@ -0,0 +1,312 @@
+/* TemperaturePickerControl.java - A picker for color temperature and tint.
+ *
+ * Copyright (c) 2015, Tilo Villwock <codemusings at gmail dot com>
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   
+ *   * Neither the name of Colorful nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.codemusings.colorful;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import javafx.event.EventHandler;
+
+import javafx.scene.Node;
+
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import javafx.scene.shape.Polygon;
+
+/* A strip from the hottest temperature at the top to the coolest at the
+ * bottom, uniform in mired, shown at the current tint. Scrolling over the
+ * strip changes the tint.
+ */
+public class TemperaturePickerControl extends Pane {
+
+    static final double MAX_TINT = 0.05;
+    private static final double TINT_STEP = 0.001;
+
+    private final ObjectProperty<Double> temperatureProperty;
+    private final ObjectProperty<Double> tintProperty;
+    private final ObjectProperty<ColorVision> colorVisionProperty;
+
+    private final Renderer backend;
+    private final LazyRenderer renderer;
+
+    public TemperaturePickerControl() {
+        this(15, 200);
+    }
+
+    public TemperaturePickerControl(double width, double height) {
+
+        super.setMinSize(width, height);
+        super.setMaxSize(width, height);
+
+        this.temperatureProperty = new SimpleObjectProperty<>(6500.0);
+        this.tintProperty = new SimpleObjectProperty<>(0.0);
+        this.colorVisionProperty = new SimpleObjectProperty<>(
+            ColorVision.NORMAL
+        );
+
+        int w = (int)width - 2;
+        int h = (int)height - 2;
+        if (RenderBackend.get() == RenderBackend.GRADIENT)
+            this.backend = new GradientRenderer(w, h);
+        else
+            this.backend = new PixelRenderer(w, h);
+        Node view = this.backend.getNode();
+        super.getChildren().add(view);
+        view.relocate(1, 1);
+        this.renderer = new LazyRenderer(
+            this, this.backend::render, this.backend.getBuffers()
+        );
+
+        final TemperaturePickerControl control = this;
+        EventHandler<MouseEvent> handler = new EventHandler<MouseEvent>() {
+
+            @Override
+            public void handle(MouseEvent e) {
+
+                double y;
+
+                if (e.getY() < 0)
+                    y = 0;
+                else if (e.getY() > h - 1)
+                    y = h - 1;
+                else
+                    y = e.getY();
+
+                control.temperatureProperty.setValue(
+                    TemperaturePickerControl.toKelvin(y / (h - 1.0))
+                );
+            }
+        };
+        view.setOnMouseClicked(handler);
+        view.setOnMouseDragged(handler);
+        view.setOnScroll((ScrollEvent e) -> {
+            if (e.getDeltaY() == 0)
+                return;
+            double tint = this.tintProperty.getValue() +
+                          (e.getDeltaY() > 0 ? TINT_STEP : -TINT_STEP);
+            this.tintProperty.setValue(
+                Math.max(-MAX_TINT, Math.min(MAX_TINT, tint))
+            );
+        });
+
+        this.temperatureProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                control.renderer.invalidate();
+            }
+        );
+        this.tintProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                control.renderer.invalidate();
+            }
+        );
+        this.colorVisionProperty.addListener(
+            (observable, oldValue, newValue) -> {
+                control.renderer.invalidate();
+            }
+        );
+    }
+
+    public ObjectProperty<ColorVision> colorVisionProperty() {
+        return this.colorVisionProperty;
+    }
+
+    public ObjectProperty<Double> temperatureProperty() {
+        return this.temperatureProperty;
+    }
+
+    public ObjectProperty<Double> tintProperty() {
+        return this.tintProperty;
+    }
+
+    /* strip position from 0 at the top to 1 at the bottom */
+    private static double toKelvin(double position) {
+
+        double hot = 1e6 / Planckian.MAX_KELVIN;
+        double cold = 1e6 / Planckian.MIN_KELVIN;
+        return 1e6 / (hot + position * (cold - hot));
+    }
+
+    private static double toPosition(double kelvin) {
+
+        double hot = 1e6 / Planckian.MAX_KELVIN;
+        double cold = 1e6 / Planckian.MIN_KELVIN;
+        return Math.max(0, Math.min(1, (1e6 / kelvin - hot) / (cold - hot)));
+    }
+
+    /* stops every 1/32 of the strip, markers as polygons on top */
+    private final class GradientRenderer implements Renderer {
+
+        private static final int STOPS = 33;
+
+        private final int height;
+        private final Pane pane;
+        private final Region strip;
+        private final Polygon left;
+        private final Polygon right;
+
+        GradientRenderer(int width, int height) {
+
+            this.height = height;
+            this.pane = GradientLayers.newPane(width, height);
+            this.strip = GradientLayers.newRegion(width, height);
+            this.left = GradientLayers.newTriangle(width, true);
+            this.right = GradientLayers.newTriangle(width, false);
+            this.pane.getChildren().addAll(this.strip, this.left, this.right);
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[0];
+        }
+
+        @Override
+        public Node getNode() {
+            return this.pane;
+        }
+
+        @Override
+        public void render() {
+
+            TemperaturePickerControl control = TemperaturePickerControl.this;
+            ColorVision vision = control.colorVisionProperty.getValue();
+            double tint = control.tintProperty.getValue();
+
+            double[] rgb = new double[3];
+            Stop[] stops = new Stop[STOPS];
+            for (int i = 0; i < stops.length; i++) {
+                double t = i / (STOPS - 1.0);
+                Planckian.toLinear(
+                    TemperaturePickerControl.toKelvin(t), tint, rgb
+                );
+                Color c = Color.color(
+                    ColorMath.toGamma(rgb[0]),
+                    ColorMath.toGamma(rgb[1]),
+                    ColorMath.toGamma(rgb[2])
+                );
+                stops[i] = new Stop(t, vision.filter(c));
+            }
+            GradientLayers.setFill(
+                this.strip, GradientLayers.vertical(this.height, stops)
+            );
+
+            double kelvin = control.temperatureProperty.getValue();
+            int y = (int)Math.round(
+                TemperaturePickerControl.toPosition(kelvin) * (this.height - 1)
+            );
+            this.left.setLayoutY(y);
+            this.right.setLayoutY(y);
+        }
+    }
+
+    private final class PixelRenderer implements Renderer {
+
+        private final PixelBuffer canvas;
+
+        PixelRenderer(int width, int height) {
+            this.canvas = new PixelBuffer(width, height);
+        }
+
+        @Override
+        public PixelBuffer[] getBuffers() {
+            return new PixelBuffer[] { this.canvas };
+        }
+
+        @Override
+        public Node getNode() {
+            return this.canvas.getView();
+        }
+
+        @Override
+        public void render() {
+
+            this.canvas.allocate();
+            int[] pixels = this.canvas.getPixels();
+            int w = this.canvas.getWidth();
+            int h = this.canvas.getHeight();
+
+            TemperaturePickerControl control = TemperaturePickerControl.this;
+            double tint = control.tintProperty.getValue();
+            double[] rgb = new double[3];
+            for (int y = 0; y < h; y++) {
+                Planckian.toLinear(
+                    TemperaturePickerControl.toKelvin(y / (h - 1.0)), tint, rgb
+                );
+                int argb = 0xFF000000 |
+                           ColorMath.encode((float)rgb[0]) << 16 |
+                           ColorMath.encode((float)rgb[1]) << 8 |
+                           ColorMath.encode((float)rgb[2]);
+                for (int x = 0; x < w; x++) {
+                    pixels[y * w + x] = argb;
+                }
+            }
+            control.colorVisionProperty.getValue().filter(
+                pixels, 0, pixels.length
+            );
+
+            double kelvin = control.temperatureProperty.getValue();
+            int y = (int)Math.round(
+                TemperaturePickerControl.toPosition(kelvin) * (h - 1)
+            );
+            int[][] left = {
+                {0, y - 2},
+                {0, y - 1}, {1, y - 1},
+                {0, y},     {1, y},     {2, y},
+                {0, y + 1}, {1, y + 1},
+                {0, y + 2}
+            };
+            int[][] right = {
+                {w - 1, y - 2},
+                {w - 1, y - 1}, {w - 2, y - 1},
+                {w - 1, y},     {w - 2, y},     {w - 3, y},
+                {w - 1, y + 1}, {w - 2, y + 1},
+                {w - 1, y + 2}
+            };
+            for (int i = 0; i < left.length; i++) {
+                if (left[i][1] < 0 || left[i][1] > h - 1)
+                    continue;
+                pixels[left[i][1] * w + left[i][0]] = 0xFF000000;
+                pixels[right[i][1] * w + right[i][0]] = 0xFF000000;
+            }
+
+            this.canvas.flush();
+        }
+    }
+}